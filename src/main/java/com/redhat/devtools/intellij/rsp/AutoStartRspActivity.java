@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package com.redhat.devtools.intellij.rsp;
+
+import com.intellij.notification.Notification;
+import com.intellij.notification.NotificationType;
+import com.intellij.notification.Notifications;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.startup.StartupActivity;
+import com.redhat.devtools.intellij.rsp.editor.EditServerListener;
+import com.redhat.devtools.intellij.rsp.model.IRsp;
+import com.redhat.devtools.intellij.rsp.model.IRspCore;
+import com.redhat.devtools.intellij.rsp.model.impl.RspCore;
+import com.redhat.devtools.intellij.rsp.settings.RspSettings;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Starts the RSPs selected in the settings when the first project opens.
+ * All of them are started at the same time, each waiting for its own
+ * process and connecting its own client, and a summary is shown once
+ * they are all done. Start times are measured from the moment all starts
+ * were requested.
+ */
+public class AutoStartRspActivity implements StartupActivity {
+    private static final AtomicBoolean started = new AtomicBoolean(false);
+
+    @Override
+    public void runActivity(@NotNull Project project) {
+        RspSettings settings = RspSettings.getInstance();
+        if( settings == null || settings.getAutoStart().isEmpty())
+            return;
+        // Once per IDE session, not once per project
+        if( !started.compareAndSet(false, true))
+            return;
+        List<String> ids = settings.getAutoStart();
+        new Thread("Auto-start RSPs") {
+            public void run() {
+                startAll(ids);
+            }
+        }.start();
+    }
+
+    private void startAll(List<String> ids) {
+        RspCore core = RspCore.getDefault();
+        List<IRsp> toStart = new ArrayList<>();
+        for( String id : ids ) {
+            IRsp rsp = core.findRsp(id);
+            if( rsp != null && rsp.exists() && rsp.getState() == IRspCore.IJServerState.STOPPED)
+                toStart.add(rsp);
+        }
+        if( toStart.isEmpty())
+            return;
+
+        long begin = System.currentTimeMillis();
+        Map<IRsp, Future<Long>> results = new LinkedHashMap<>();
+        for( IRsp rsp : toStart ) {
+            results.put(rsp, core.startServer(rsp).thenApply(
+                    launcher -> launcher == null ? -1L : System.currentTimeMillis() - begin));
+        }
+
+        StringBuilder summary = new StringBuilder();
+        boolean failed = false;
+        for( Map.Entry<IRsp, Future<Long>> entry : results.entrySet()) {
+            long millis = getResult(entry.getValue());
+            summary.append(entry.getKey().getRspType().getName());
+            if( millis < 0 ) {
+                failed = true;
+                summary.append(": failed to start<br/>");
+            } else {
+                summary.append(": ").append(formatSeconds(millis)).append("<br/>");
+            }
+        }
+        summary.append("Total: ").append(formatSeconds(System.currentTimeMillis() - begin));
+        Notification notification = new Notification(EditServerListener.NOTIFICATION_ID, "RSPs started",
+                summary.toString(), failed ? NotificationType.WARNING : NotificationType.INFORMATION);
+        Notifications.Bus.notify(notification);
+    }
+
+    private static long getResult(Future<Long> future) {
+        try {
+            return future.get();
+        } catch(InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return -1;
+        } catch(ExecutionException ee) {
+            return -1;
+        }
+    }
+
+    private static String formatSeconds(long millis) {
+        return String.format("%.1f s", millis / 1000.0);
+    }
+}
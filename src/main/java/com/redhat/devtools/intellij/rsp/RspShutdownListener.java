@@ -0,0 +1,36 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package com.redhat.devtools.intellij.rsp;
+
+import com.intellij.ide.AppLifecycleListener;
+import com.redhat.devtools.intellij.rsp.model.impl.RspCore;
+
+/**
+ * Stops the running RSPs when the IDE exits.
+ * All RSPs are stopped at the same time. RSPs other IDEs still use are only
+ * disconnected, which does not wait. The others get short deadlines and
+ * closing the IDE waits one second at most. An RSP that ignores even
+ * being killed by then is left running and is found in the registry
+ * by the next IDE that starts it.
+ */
+public class RspShutdownListener implements AppLifecycleListener {
+    private static final long SHUTDOWN_TIMEOUT = 600;
+    private static final long TERMINATE_TIMEOUT = 300;
+    private static final long MAX_WAIT = 1000;
+
+    @Override
+    public void appWillBeClosed(boolean isRestart) {
+        // Nothing was started if the model was never created
+        if( !RspCore.isCreated())
+            return;
+        RspCore.getDefault().stopAll(SHUTDOWN_TIMEOUT, TERMINATE_TIMEOUT, MAX_WAIT);
+    }
+}
@@ -15,6 +15,7 @@ import com.intellij.ide.util.treeView.NodeRenderer;
 import com.intellij.openapi.Disposable;
 import com.intellij.openapi.actionSystem.ActionPlaces;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
 import com.intellij.openapi.wm.ToolWindow;
 import com.intellij.openapi.wm.ToolWindowFactory;
 import com.intellij.ui.PopupHandler;
@@ -24,12 +25,14 @@ import com.intellij.ui.tree.AsyncTreeModel;
 import com.intellij.ui.tree.StructureTreeModel;
 import com.intellij.ui.treeStructure.Tree;
 import com.redhat.devtools.intellij.rsp.model.impl.RspCore;
+import com.redhat.devtools.intellij.rsp.ui.tree.ResourceDetailsPanel;
 import com.redhat.devtools.intellij.rsp.ui.tree.RspTreeModel;
 import com.redhat.devtools.intellij.rsp.util.common.MutableModelSynchronizer;
 import org.jetbrains.annotations.NotNull;
 
-import javax.swing.JScrollPane;
+import javax.swing.JPanel;
 import javax.swing.tree.TreeSelectionModel;
+import java.awt.BorderLayout;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 
@@ -55,7 +58,12 @@ public class WindowToolFactory implements ToolWindowFactory {
             tree.setCellRenderer(new NodeRenderer());
             PopupHandler.installPopupHandler(tree,
                     "com.redhat.devtools.intellij.rsp.tree", ActionPlaces.UNKNOWN);
-            JScrollPane panel = ScrollPaneFactory.createScrollPane(tree);
+            JPanel panel = new JPanel(new BorderLayout());
+            panel.add(ScrollPaneFactory.createScrollPane(tree), BorderLayout.CENTER);
+            ResourceDetailsPanel details = new ResourceDetailsPanel(core, tree);
+            // The model outlives the project, its listener must not keep the panel alive
+            Disposer.register(project, details);
+            panel.add(details, BorderLayout.SOUTH);
             toolWindow.getContentManager().addContent(contentFactory.createContent(panel, "", false));
         } catch (IllegalAccessException | InvocationTargetException | InstantiationException | NoSuchMethodException e) {
             throw new RuntimeException((e));
@@ -13,8 +13,15 @@ package com.redhat.devtools.intellij.rsp.actions;
 import com.intellij.openapi.actionSystem.AnAction;
 import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.actionSystem.PlatformDataKeys;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
 import com.intellij.openapi.ui.Messages;
 import com.intellij.ui.treeStructure.Tree;
+import com.redhat.devtools.intellij.rsp.model.IRsp;
+import com.redhat.devtools.intellij.rsp.model.IRspCore;
 import com.redhat.devtools.intellij.rsp.ui.tree.RspTreeModel;
 import com.redhat.devtools.intellij.rsp.ui.util.UIHelper;
 import org.jboss.tools.rsp.api.dao.Status;
@@ -22,9 +29,39 @@ import org.jboss.tools.rsp.api.dao.Status;
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.TreePath;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
 public abstract class AbstractTreeAction extends AnAction {
     private static final String INVALID_RESPONSE = "Invalid Response from RSP";
+    // Seconds a request to an RSP may take
+    protected static final long REQUEST_TIMEOUT = 60;
+    // How often a waiting request checks whether it was canceled
+    private static final long CANCEL_POLL = 100;
+
+    /**
+     * Handles the response of a request on a background thread
+     * @param <T> the response
+     * @param <R> what is handed to the UI continuation
+     */
+    protected interface BackgroundContinuation<T, R> {
+        /**
+         * @param result the response
+         * @param indicator the progress of the request, to pass to {@link #await} for further requests
+         * @return the input of the UI continuation, or null to skip it
+         */
+        R apply(T result, ProgressIndicator indicator) throws Exception;
+    }
+
+    /**
+     * Shows the outcome of a request on the UI thread
+     */
+    protected interface UIContinuation<R> {
+        void accept(R result);
+    }
 
     public static void showError(String msg, String title) {
         UIHelper.executeInUI(() -> Messages.showErrorDialog(msg, title));
@@ -38,6 +75,103 @@ public abstract class AbstractTreeAction extends AnAction {
         showError(stat == null ? INVALID_RESPONSE : stat.getMessage(), title);
     }
 
+    /**
+     * Send a request to an RSP without blocking the UI thread, see
+     * {@link #executeAsync(String, long, Supplier, BackgroundContinuation, UIContinuation, String)}
+     */
+    protected static <T> void executeAsync(String title, Supplier<CompletableFuture<T>> request,
+                                           UIContinuation<T> ui, String errorTitle) {
+        executeAsync(title, REQUEST_TIMEOUT, request, (result, indicator) -> result, ui, errorTitle);
+    }
+
+    /**
+     * Send a request to an RSP without blocking the UI thread.
+     * The request is sent and waited for in a background task whose progress
+     * can be canceled, which cancels the request. The background continuation
+     * then gets the response on the same thread and may send more requests with
+     * {@link #await}. What it returns is given to the UI continuation on the UI thread.
+     * Failures, including the request taking longer than the timeout, are shown
+     * in an error dialog with the given title.
+     * @param title the title of the progress
+     * @param timeout the seconds to wait for the response
+     * @param request creates the request, called on the background thread
+     * @param background handles the response
+     * @param ui shows the outcome, may be null
+     * @param errorTitle the title of error dialogs
+     */
+    protected static <T, R> void executeAsync(String title, long timeout, Supplier<CompletableFuture<T>> request,
+                                              BackgroundContinuation<T, R> background, UIContinuation<R> ui,
+                                              String errorTitle) {
+        ProgressManager.getInstance().run(new Task.Backgroundable(null, title, true) {
+            @Override
+            public void run(ProgressIndicator indicator) {
+                indicator.setIndeterminate(true);
+                R result;
+                try {
+                    T response = await(request.get(), indicator, timeout);
+                    result = background.apply(response, indicator);
+                } catch (ProcessCanceledException pce) {
+                    throw pce;
+                } catch (TimeoutException te) {
+                    showError(title + " did not finish within " + timeout + " seconds", errorTitle);
+                    return;
+                } catch (ExecutionException ee) {
+                    apiError(ee.getCause() instanceof Exception ? (Exception)ee.getCause() : ee, errorTitle);
+                    return;
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (Exception ex) {
+                    apiError(ex, errorTitle);
+                    return;
+                }
+                if (result != null && ui != null)
+                    ApplicationManager.getApplication().invokeLater(() -> ui.accept(result));
+            }
+        });
+    }
+
+    /**
+     * Wait for the response of a request, off the UI thread only.
+     * @param future the request
+     * @param indicator cancels the request when canceled, may be null
+     * @param timeout the seconds to wait for the response
+     * @throws TimeoutException if there was no response in time, the request is canceled then
+     * @throws IllegalStateException if called on the UI thread
+     */
+    protected static <T> T await(CompletableFuture<T> future, ProgressIndicator indicator, long timeout)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        if (ApplicationManager.getApplication().isDispatchThread())
+            throw new IllegalStateException("RSP requests must not be waited for on the UI thread");
+        if (future == null)
+            throw new ExecutionException(new Exception(INVALID_RESPONSE));
+        long end = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(timeout);
+        while (true) {
+            if (indicator != null && indicator.isCanceled()) {
+                future.cancel(true);
+                throw new ProcessCanceledException();
+            }
+            long left = end - System.currentTimeMillis();
+            if (left <= 0) {
+                future.cancel(true);
+                throw new TimeoutException();
+            }
+            try {
+                return future.get(Math.min(left, CANCEL_POLL), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException te) {
+                // Check for cancellation again
+            }
+        }
+    }
+
+    /**
+     * Whether the RSP is running, or was stopped while idle and is started again
+     * when its client is asked for with {@link IRspCore#getClientAsync(IRsp)}
+     */
+    protected static boolean isRspAvailable(IRsp rsp) {
+        return rsp.getState() == IRspCore.IJServerState.STARTED || rsp.getModel().isStoppedWhileIdle(rsp);
+    }
+
     @Override
     public void update(AnActionEvent e) {
         Object o = getSelectedElementFromEvent(e);
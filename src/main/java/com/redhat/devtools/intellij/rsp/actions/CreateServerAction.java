@@ -14,29 +14,30 @@ import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.fileChooser.FileChooser;
 import com.intellij.openapi.fileChooser.FileChooserDescriptor;
 import com.intellij.openapi.fileChooser.FileChooserDescriptorFactory;
+import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.project.ProjectManager;
 import com.intellij.openapi.ui.DialogWrapper;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.redhat.devtools.intellij.rsp.client.IntelliJRspClientLauncher;
-import com.redhat.devtools.intellij.rsp.model.IRspCore;
 import com.redhat.devtools.intellij.rsp.model.impl.RspCore;
 import com.redhat.devtools.intellij.rsp.ui.dialogs.NewServerDialog;
 import com.redhat.devtools.intellij.rsp.model.IRsp;
-import com.redhat.devtools.intellij.rsp.ui.util.UIHelper;
 import org.jboss.tools.rsp.api.DefaultServerAttributes;
 import org.jboss.tools.rsp.api.dao.*;
 
 import javax.swing.tree.TreePath;
 import java.util.HashMap;
-import java.util.List;
-import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
 
 public class CreateServerAction extends AbstractTreeAction {
     private static final String ERROR_DISCOVERY = "Error discovering server in selected folder";
     private static final String ERROR_LOADING_ATTRIBUTES = "Error requesting attributes for server type";
     private static final String ERROR_CREATING_SERVER = "Error creating server";
+    private static final String ERROR_STARTING_RSP = "Error starting RSP";
+    // Seconds to wait for an RSP stopped while idle to start again
+    private static final long START_TIMEOUT = 120;
 
     @Override
     protected boolean isVisible(Object o) {
@@ -45,18 +46,26 @@ public class CreateServerAction extends AbstractTreeAction {
 
     @Override
     protected boolean isEnabled(Object o) {
-        return o instanceof IRsp && ((IRsp)o).getState() == IRspCore.IJServerState.STARTED;
+        return o instanceof IRsp && isRspAvailable((IRsp)o);
     }
 
     @Override
     protected void actionPerformed(AnActionEvent e, TreePath treePath, Object selected) {
         if( selected instanceof IRsp) {
             IRsp server = (IRsp)selected;
-            if( server.getState() == IRspCore.IJServerState.STARTED) {
+            if( isRspAvailable(server)) {
                 Project project = ProjectManager.getInstance().getOpenProjects()[0];
                 final FileChooserDescriptor descriptor = FileChooserDescriptorFactory.createSingleFolderDescriptor();
-                IntelliJRspClientLauncher client = RspCore.getDefault().getClient(server);
-                createServerFromBean(client, descriptor, project);
+                // An RSP stopped while idle is started first
+                executeAsync("Connecting to " + server.getRspType().getName(), START_TIMEOUT,
+                        () -> RspCore.getDefault().getClientAsync(server),
+                        (client, indicator) -> {
+                            if( client == null )
+                                showError(server.getRspType().getName() + " could not be started", ERROR_STARTING_RSP);
+                            return client;
+                        },
+                        client -> createServerFromBean(client, descriptor, project),
+                        ERROR_STARTING_RSP);
             }
         }
     }
@@ -65,41 +74,40 @@ public class CreateServerAction extends AbstractTreeAction {
         final VirtualFile[] result = FileChooser.chooseFiles(descriptor, project, null);
         VirtualFile vf1 = result == null || result.length == 0 ? null : result[0];
         if( vf1 != null && client != null ) {
-            CompletableFuture<List<ServerBean>> fut = client.getServerProxy().findServerBeans(new DiscoveryPath(vf1.getPath()));
-            List<ServerBean> beans = null;
-            try {
-                beans = fut.get();
-            } catch (InterruptedException | ExecutionException e) {
-                apiError(e, ERROR_DISCOVERY);
-            }
-            if( beans == null || beans.size() == 0 ) {
-                apiError(new Exception("No server found at " + vf1.getPath()), ERROR_DISCOVERY);
-            } else {
-                showCreateServerFromBeanDialog(beans, client);
-            }
+            executeAsync("Discovering server in " + vf1.getPath(), REQUEST_TIMEOUT,
+                    () -> client.getServerProxy().findServerBeans(new DiscoveryPath(vf1.getPath())),
+                    (beans, indicator) -> {
+                        if( beans == null || beans.size() == 0 ) {
+                            apiError(new Exception("No server found at " + vf1.getPath()), ERROR_DISCOVERY);
+                            return null;
+                        }
+                        return loadAttributes(beans.get(0), client, indicator);
+                    },
+                    bean -> showCreateServerDialog(bean, client),
+                    ERROR_DISCOVERY);
         }
     }
 
-    private void showCreateServerFromBeanDialog(List<ServerBean> beans, IntelliJRspClientLauncher client) {
-        ServerBean bean1 = beans.get(0);
+    /*
+     * The attributes of the type of the discovered server, with the location filled in
+     */
+    private DiscoveredServer loadAttributes(ServerBean bean1, IntelliJRspClientLauncher client, ProgressIndicator indicator) {
         String typeId = bean1.getServerAdapterTypeId();
         if( typeId == null || typeId.isEmpty() ) {
-            UIHelper.executeInUI(() -> {
-                showError("No server found in the given folder", "Invalid Selection");
-            });
-            return;
+            showError("No server found in the given folder", "Invalid Selection");
+            return null;
         }
         ServerType st = new ServerType(typeId, null, null);
         Attributes required2 = null;
         Attributes optional2 = null;
         try {
-            required2 = client.getServerProxy()
-                    .getRequiredAttributes(st).get();
-            optional2 = client.getServerProxy()
-                    .getOptionalAttributes(st).get();
-        } catch(InterruptedException | ExecutionException e ) {
+            required2 = await(client.getServerProxy()
+                    .getRequiredAttributes(st), indicator, REQUEST_TIMEOUT);
+            optional2 = await(client.getServerProxy()
+                    .getOptionalAttributes(st), indicator, REQUEST_TIMEOUT);
+        } catch(InterruptedException | ExecutionException | TimeoutException e ) {
             apiError(new Exception("Error loading attributes for server type " + typeId), ERROR_LOADING_ATTRIBUTES);
-            return;
+            return null;
         }
 
         final HashMap<String,Object> values = new HashMap<>();
@@ -108,29 +116,40 @@ public class CreateServerAction extends AbstractTreeAction {
         } else if( required2.getAttributes().containsKey(DefaultServerAttributes.SERVER_HOME_FILE)) {
             values.put(DefaultServerAttributes.SERVER_HOME_FILE, bean1.getLocation());
         }
+        return new DiscoveredServer(typeId, required2, optional2, values);
+    }
 
-        NewServerDialog td = new NewServerDialog(required2, optional2, values);
-        UIHelper.executeInUI(() -> {
-            td.show();
-            if( td.getExitCode() == DialogWrapper.OK_EXIT_CODE) {
-                if( td.getName() == null || td.getName().trim().isEmpty()) {
-                    showError("Name must not be empty or missing", "Invalid Name");
-                } else {
-                    new Thread("Create Server") {
-                        public void run() {
-                            ServerAttributes csa = new ServerAttributes(typeId, td.getName(), values);
-                            try {
-                                CreateServerResponse result = client.getServerProxy().createServer(csa).get();
-                                if (!result.getStatus().isOK()) {
-                                    statusError(result.getStatus(), ERROR_CREATING_SERVER);
-                                }
-                            } catch (InterruptedException | ExecutionException e) {
-                                apiError(e, ERROR_CREATING_SERVER);
+    private void showCreateServerDialog(DiscoveredServer discovered, IntelliJRspClientLauncher client) {
+        NewServerDialog td = new NewServerDialog(discovered.required, discovered.optional, discovered.values);
+        td.show();
+        if( td.getExitCode() == DialogWrapper.OK_EXIT_CODE) {
+            if( td.getName() == null || td.getName().trim().isEmpty()) {
+                showError("Name must not be empty or missing", "Invalid Name");
+            } else {
+                ServerAttributes csa = new ServerAttributes(discovered.typeId, td.getName(), discovered.values);
+                executeAsync("Creating server " + td.getName(), REQUEST_TIMEOUT,
+                        () -> client.getServerProxy().createServer(csa),
+                        (response, indicator) -> {
+                            if (!response.getStatus().isOK()) {
+                                statusError(response.getStatus(), ERROR_CREATING_SERVER);
                             }
-                        }
-                    }.start();
-                }
+                            return null;
+                        }, null, ERROR_CREATING_SERVER);
             }
-        });
+        }
+    }
+
+    private static class DiscoveredServer {
+        private final String typeId;
+        private final Attributes required;
+        private final Attributes optional;
+        private final HashMap<String,Object> values;
+
+        DiscoveredServer(String typeId, Attributes required, Attributes optional, HashMap<String,Object> values) {
+            this.typeId = typeId;
+            this.required = required;
+            this.optional = optional;
+            this.values = values;
+        }
     }
 }
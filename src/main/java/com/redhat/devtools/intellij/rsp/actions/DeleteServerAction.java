@@ -17,13 +17,11 @@ import com.intellij.openapi.ui.DialogWrapper;
 import com.redhat.devtools.intellij.rsp.client.IntelliJRspClientLauncher;
 import com.redhat.devtools.intellij.rsp.model.impl.RspCore;
 import com.redhat.devtools.intellij.rsp.ui.tree.RspTreeModel;
-import org.jboss.tools.rsp.api.dao.Status;
 
 import javax.annotation.Nullable;
 import javax.swing.*;
 import javax.swing.tree.TreePath;
 import java.awt.*;
-import java.util.concurrent.ExecutionException;
 
 public class DeleteServerAction extends AbstractTreeAction {
     private static final String ERROR_DELETING_SERVER = "Error deleting server";
@@ -65,14 +63,14 @@ public class DeleteServerAction extends AbstractTreeAction {
 
             if (new AreYouSureDialog().showAndGet()) {
                 IntelliJRspClientLauncher client = RspCore.getDefault().getClient(sel.getRsp());
-                try {
-                    Status stat = client.getServerProxy().deleteServer(sel.getServerState().getServer()).get();
-                    if( !stat.isOK()) {
-                        statusError(stat, ERROR_DELETING_SERVER);
-                    }
-                } catch (InterruptedException | ExecutionException ex) {
-                    apiError(ex, ERROR_DELETING_SERVER);
-                }
+                executeAsync("Deleting server " + sel.getServerState().getServer().getId(), REQUEST_TIMEOUT,
+                        () -> client.getServerProxy().deleteServer(sel.getServerState().getServer()),
+                        (stat, indicator) -> {
+                            if( !stat.isOK()) {
+                                statusError(stat, ERROR_DELETING_SERVER);
+                            }
+                            return null;
+                        }, null, ERROR_DELETING_SERVER);
             }
         }
     }
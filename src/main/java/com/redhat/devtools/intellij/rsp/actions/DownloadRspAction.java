@@ -14,10 +14,8 @@ import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.redhat.devtools.intellij.rsp.model.IRspCore;
 import com.redhat.devtools.intellij.rsp.util.VersionComparatorUtil;
 import com.redhat.devtools.intellij.rsp.model.IRsp;
-import com.redhat.devtools.intellij.rsp.model.impl.RspTypeImpl;
 
 import javax.swing.tree.TreePath;
-import java.io.File;
 
 public class DownloadRspAction extends AbstractTreeAction {
 
@@ -55,24 +53,9 @@ public class DownloadRspAction extends AbstractTreeAction {
             String installed = server.getInstalledVersion();
             String latest = server.getLatestVersion();
             if( !server.exists() || installed == null || VersionComparatorUtil.isGreaterThan(latest, installed.trim())) {
-                String home = server.getRspType().getServerHome();
-                new Thread("Updating RSP " + server.getRspType().getName()) {
-                    public void run() {
-                        deleteDirectory(RspTypeImpl.getServerTypeInstallLocation(server.getRspType()));
-                        server.download();
-                    }
-                }.start();
+                // Installs next to the current version, which stays usable until the new one is ready
+                server.download();
             }
         }
     }
-
-    boolean deleteDirectory(File directoryToBeDeleted) {
-        File[] allContents = directoryToBeDeleted.listFiles();
-        if (allContents != null) {
-            for (File file : allContents) {
-                deleteDirectory(file);
-            }
-        }
-        return directoryToBeDeleted.delete();
-    }
 }
@@ -16,7 +16,6 @@ import com.intellij.openapi.project.Project;
 import com.intellij.openapi.project.ProjectManager;
 import com.intellij.openapi.ui.DialogWrapper;
 import com.redhat.devtools.intellij.rsp.client.IntelliJRspClientLauncher;
-import com.redhat.devtools.intellij.rsp.model.IRspCore;
 import com.redhat.devtools.intellij.rsp.model.impl.RspCore;
 import com.redhat.devtools.intellij.rsp.ui.dialogs.SelectDownloadRuntimeDialog;
 import com.redhat.devtools.intellij.rsp.ui.util.WorkflowUiUtility;
@@ -28,11 +27,13 @@ import org.jboss.tools.rsp.api.dao.WorkflowResponse;
 
 import javax.swing.tree.TreePath;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
 public class DownloadServerAction extends AbstractTreeAction {
     private static final String ERROR_FETCHING_DOWNLOADABLE_RUNTIMES = "Error loading list of downloadable runtimes";
     private static final String ERROR_DOWNLOADING_RUNTIME = "Error downloading runtime";
+    private static final String ERROR_STARTING_RSP = "Error starting RSP";
 
     @Override
     protected boolean isVisible(Object o) {
@@ -41,17 +42,18 @@ public class DownloadServerAction extends AbstractTreeAction {
 
     @Override
     protected boolean isEnabled(Object o) {
-        return o instanceof IRsp && ((IRsp) o).getState() == IRspCore.IJServerState.STARTED;
+        return o instanceof IRsp && isRspAvailable((IRsp) o);
     }
 
     @Override
     protected void actionPerformed(AnActionEvent e, TreePath treePath, Object selected) {
         if (selected instanceof IRsp) {
             final IRsp server = (IRsp) selected;
-            if (server.getState() == IRspCore.IJServerState.STARTED) {
+            if (isRspAvailable(server)) {
                 Project project = ProjectManager.getInstance().getOpenProjects()[0];
 
-                final IntelliJRspClientLauncher client = RspCore.getDefault().getClient(server);
+                // An RSP stopped while idle is started again meanwhile
+                final CompletableFuture<IntelliJRspClientLauncher> clientFuture = RspCore.getDefault().getClientAsync(server);
                 final SelectDownloadRuntimeDialog td = new SelectDownloadRuntimeDialog(server);
                 ApplicationManager.getApplication().invokeLater(() -> {
                     td.show();
@@ -59,13 +61,18 @@ public class DownloadServerAction extends AbstractTreeAction {
                     if (chosen != null && td.getExitCode() == DialogWrapper.OK_EXIT_CODE) {
                         new Thread("Download Runtime Workflow: " + server.getRspType().getName()) {
                             public void run() {
-                                initiateDownloadRuntimeWorkflow(server, client, chosen);
+                                IntelliJRspClientLauncher client = getClient(server, clientFuture);
+                                if (client != null)
+                                    initiateDownloadRuntimeWorkflow(server, client, chosen);
                             }
                         }.start();
                     }
                 });
                 new Thread("Load downloadable runtimes...") {
                     public void run() {
+                        IntelliJRspClientLauncher client = getClient(server, clientFuture);
+                        if (client == null)
+                            return;
                         ListDownloadRuntimeResponse runtimeResponse = null;
                         try {
                             runtimeResponse = client.getServerProxy().listDownloadableRuntimes().get();
@@ -81,6 +88,18 @@ public class DownloadServerAction extends AbstractTreeAction {
         }
     }
 
+    private IntelliJRspClientLauncher getClient(IRsp server, CompletableFuture<IntelliJRspClientLauncher> clientFuture) {
+        try {
+            IntelliJRspClientLauncher client = clientFuture.get();
+            if (client != null)
+                return client;
+        } catch (InterruptedException | ExecutionException ex) {
+            // Reported below
+        }
+        showError(server.getRspType().getName() + " could not be started", ERROR_STARTING_RSP);
+        return null;
+    }
+
     private void initiateDownloadRuntimeWorkflow(IRsp server, IntelliJRspClientLauncher client, DownloadRuntimeDescription chosen) {
         DownloadSingleRuntimeRequest req = new DownloadSingleRuntimeRequest();
         req.setDownloadRuntimeId(chosen.getId());
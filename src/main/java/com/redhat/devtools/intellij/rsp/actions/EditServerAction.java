@@ -14,16 +14,16 @@ import com.redhat.devtools.intellij.rsp.model.impl.RspCore;
 import com.redhat.devtools.intellij.rsp.ui.tree.RspTreeModel;
 import org.apache.commons.io.FileUtils;
 import com.redhat.devtools.intellij.rsp.editor.EditServerListener;
-import org.jboss.tools.rsp.api.dao.GetServerJsonResponse;
 
 import javax.swing.tree.TreePath;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
-import java.util.concurrent.ExecutionException;
 
 public class EditServerAction extends AbstractTreeAction {
+    private static final String ERROR_DISPLAYING = "Error displaying server descriptor content.";
+
     @Override
     protected boolean isVisible(Object o) {
         return o instanceof RspTreeModel.ServerStateWrapper;
@@ -40,35 +40,35 @@ public class EditServerAction extends AbstractTreeAction {
             RspTreeModel.ServerStateWrapper server = (RspTreeModel.ServerStateWrapper) selected;
             Project project = ProjectManager.getInstance().getOpenProjects()[0];
             IntelliJRspClientLauncher client = RspCore.getDefault().getClient(server.getRsp());
-            try {
-                GetServerJsonResponse response = client.getServerProxy().getServerAsJson(server.getServerState().getServer()).get();
-                if (response.getStatus() != null && !response.getStatus().isOK()) {
-                    showError(response.getStatus().getMessage(), "Error loading server descriptor content.");
-                } else {
-                    // OK assumed
-                    String fName = server.getServerState().getServer().getId() + ".json";
-                    //VirtualFile vf = new LightVirtualFile(fName, response.getServerJson());
-                    VirtualFile vf = createTempFile(fName, response.getServerJson());
-                    Key<String> KEY_RSP_ID = EditServerListener.KEY_RSP_ID;
-                    Key<String> KEY_SERVER_ID = EditServerListener.KEY_SERVER_ID;
+            executeAsync("Loading server descriptor of " + server.getServerState().getServer().getId(), REQUEST_TIMEOUT,
+                    () -> client.getServerProxy().getServerAsJson(server.getServerState().getServer()),
+                    (response, indicator) -> {
+                        if (response.getStatus() != null && !response.getStatus().isOK()) {
+                            showError(response.getStatus().getMessage(), "Error loading server descriptor content.");
+                            return null;
+                        }
+                        // OK assumed
+                        String fName = server.getServerState().getServer().getId() + ".json";
+                        //VirtualFile vf = new LightVirtualFile(fName, response.getServerJson());
+                        return createTempFile(fName, response.getServerJson());
+                    },
+                    vf -> openEditor(vf, server, project),
+                    ERROR_DISPLAYING);
+        }
+    }
+
+    private void openEditor(VirtualFile vf, RspTreeModel.ServerStateWrapper server, Project project) {
+        Key<String> KEY_RSP_ID = EditServerListener.KEY_RSP_ID;
+        Key<String> KEY_SERVER_ID = EditServerListener.KEY_SERVER_ID;
 
-                    vf.putUserData(KEY_RSP_ID, server.getRsp().getRspType().getId());
-                    vf.putUserData(KEY_SERVER_ID, server.getServerState().getServer().getId());
-                    try {
-                        vf.setWritable(true);
-                        OpenFileDescriptor desc = new OpenFileDescriptor(project, vf, 0);
-                        Editor editors = FileEditorManager.getInstance(project).openTextEditor(desc, true);
-                    } catch (IOException ioException) {
-                        showError(ioException.getMessage(), "Error displaying server descriptor content.");
-                    }
-                }
-            } catch (InterruptedException interruptedException) {
-                showError("Error displaying server descriptor content: " + interruptedException.getMessage(), "Error");
-            } catch (ExecutionException executionException) {
-                showError("Error displaying server descriptor content: " + executionException.getMessage(), "Error");
-            } catch (IOException ioe) {
-                showError("Error displaying server descriptor content: " + ioe.getMessage(), "Error");
-            }
+        vf.putUserData(KEY_RSP_ID, server.getRsp().getRspType().getId());
+        vf.putUserData(KEY_SERVER_ID, server.getServerState().getServer().getId());
+        try {
+            vf.setWritable(true);
+            OpenFileDescriptor desc = new OpenFileDescriptor(project, vf, 0);
+            Editor editors = FileEditorManager.getInstance(project).openTextEditor(desc, true);
+        } catch (IOException ioException) {
+            showError(ioException.getMessage(), ERROR_DISPLAYING);
         }
     }
 
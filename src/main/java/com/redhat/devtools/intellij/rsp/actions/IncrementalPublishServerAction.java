@@ -11,17 +11,13 @@
 package com.redhat.devtools.intellij.rsp.actions;
 
 import com.intellij.openapi.actionSystem.AnActionEvent;
-import com.intellij.openapi.project.Project;
-import com.intellij.openapi.project.ProjectManager;
 import com.redhat.devtools.intellij.rsp.client.IntelliJRspClientLauncher;
 import com.redhat.devtools.intellij.rsp.model.impl.RspCore;
 import com.redhat.devtools.intellij.rsp.ui.tree.RspTreeModel;
 import org.jboss.tools.rsp.api.ServerManagementAPIConstants;
 import org.jboss.tools.rsp.api.dao.PublishServerRequest;
-import org.jboss.tools.rsp.api.dao.Status;
 
 import javax.swing.tree.TreePath;
-import java.util.concurrent.ExecutionException;
 
 public class IncrementalPublishServerAction extends AbstractTreeAction {
     private static final String ERROR_PUBLISHING = "Error publishing to server";
@@ -46,16 +42,15 @@ public class IncrementalPublishServerAction extends AbstractTreeAction {
             PublishServerRequest req = new PublishServerRequest();
             req.setServer(server.getServerState().getServer());
             req.setKind(kind);
-            Project project = ProjectManager.getInstance().getOpenProjects()[0];
             IntelliJRspClientLauncher client = RspCore.getDefault().getClient(server.getRsp());
-            try {
-                Status stat = client.getServerProxy().publishAsync(req).get();
-                if( !stat.isOK()) {
-                    statusError(stat, ERROR_PUBLISHING);
-                }
-            } catch (InterruptedException | ExecutionException ex) {
-                apiError(ex, ERROR_PUBLISHING);
-            }
+            executeAsync("Publishing to " + server.getServerState().getServer().getId(), REQUEST_TIMEOUT,
+                    () -> client.getServerProxy().publishAsync(req),
+                    (stat, indicator) -> {
+                        if( !stat.isOK()) {
+                            statusError(stat, ERROR_PUBLISHING);
+                        }
+                        return null;
+                    }, null, ERROR_PUBLISHING);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,47 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package com.redhat.devtools.intellij.rsp.actions;
+
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.redhat.devtools.intellij.rsp.model.IRsp;
+import com.redhat.devtools.intellij.rsp.model.IRspCore;
+
+import javax.swing.tree.TreePath;
+
+public class RollbackRspAction extends AbstractTreeAction {
+    @Override
+    protected boolean isVisible(Object o) {
+        return o instanceof IRsp && ((IRsp)o).canRollback();
+    }
+
+    @Override
+    protected boolean isEnabled(Object o) {
+        if( o instanceof IRsp ) {
+            IRsp rsp = (IRsp)o;
+            IRspCore.IJServerState state = rsp.getState();
+            return (state == IRspCore.IJServerState.STOPPED || state == IRspCore.IJServerState.MISSING)
+                    && rsp.canRollback();
+        }
+        return false;
+    }
+
+    @Override
+    protected void actionPerformed(AnActionEvent e, TreePath treePath, Object selected) {
+        if( selected instanceof IRsp) {
+            IRsp server = (IRsp)selected;
+            new Thread("Rollback RSP " + server.getRspType().getId()) {
+                public void run() {
+                    server.rollback();
+                }
+            }.start();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package com.redhat.devtools.intellij.rsp.actions;
+
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
+import com.redhat.devtools.intellij.rsp.download.DistributionMirror;
+import com.redhat.devtools.intellij.rsp.download.DownloadUtility;
+import com.redhat.devtools.intellij.rsp.model.IRsp;
+import com.redhat.devtools.intellij.rsp.model.RspRelease;
+import com.redhat.devtools.intellij.rsp.model.impl.RspCore;
+import com.redhat.devtools.intellij.rsp.types.AbstractServerConnector;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.tree.TreePath;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Copy the LATEST properties and the latest distribution of an RSP
+ * into the configured distribution mirror, so other installs can work offline.
+ */
+public class SeedMirrorAction extends AbstractTreeAction {
+    private static final String ERROR_TITLE = "Error copying RSP to distribution mirror";
+
+    @Override
+    protected boolean isVisible(Object o) {
+        return o instanceof IRsp && DistributionMirror.getConfigured() != null;
+    }
+
+    @Override
+    protected boolean isEnabled(Object o) {
+        return o instanceof IRsp && ((IRsp)o).getLatestDownloadUrl() != null;
+    }
+
+    @Override
+    protected void actionPerformed(AnActionEvent e, TreePath treePath, Object selected) {
+        if( !(selected instanceof IRsp))
+            return;
+        IRsp rsp = (IRsp)selected;
+        DistributionMirror mirror = DistributionMirror.getConfigured();
+        if( mirror == null )
+            return;
+        ProgressManager.getInstance().run(new Task.Backgroundable(e.getProject(),
+                "Copying " + rsp.getRspType().getName() + " to distribution mirror") {
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                try {
+                    seed(mirror, rsp, indicator);
+                } catch(IOException ioe) {
+                    apiError(ioe, ERROR_TITLE);
+                }
+            }
+        });
+    }
+
+    private void seed(DistributionMirror mirror, IRsp rsp, ProgressIndicator indicator) throws IOException {
+        String id = rsp.getRspType().getId();
+        // Read once, so the LATEST written below describes this download
+        RspRelease release = rsp.getLatestRelease();
+        AbstractServerConnector connector = RspCore.getDefault().findConnector(id);
+        if( release == null || release.getDownloadUrl() == null || connector == null )
+            throw new IOException("The latest version of " + rsp.getRspType().getName() + " is not known.");
+        String version = release.getVersion();
+        String url = release.getDownloadUrl();
+        File latest = mirror.getLatestFile(id);
+        Files.createDirectories(latest.getParentFile().toPath());
+
+        File distribution = mirror.getDistributionFile(id, url);
+        if( !distribution.isFile()) {
+            Path tmp = distribution.toPath().resolveSibling(distribution.getName() + ".part");
+            new DownloadUtility().download(url, tmp, indicator);
+            if( indicator.isCanceled()) {
+                Files.deleteIfExists(tmp);
+                return;
+            }
+            Files.move(tmp, distribution.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        // Written last, so the mirror never points at a distribution it does not have
+        connector.writeLatest(latest, version, url);
+    }
+}
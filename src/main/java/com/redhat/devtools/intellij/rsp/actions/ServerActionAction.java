@@ -19,7 +19,6 @@ import com.redhat.devtools.intellij.rsp.model.IRspCore;
 import com.redhat.devtools.intellij.rsp.model.impl.RspCore;
 import com.redhat.devtools.intellij.rsp.ui.dialogs.SelectServerActionDialog;
 import com.redhat.devtools.intellij.rsp.ui.tree.RspTreeModel;
-import com.redhat.devtools.intellij.rsp.ui.util.UIHelper;
 import com.redhat.devtools.intellij.rsp.ui.util.WorkflowUiUtility;
 import org.jboss.tools.rsp.api.dao.ListServerActionResponse;
 import org.jboss.tools.rsp.api.dao.ServerActionRequest;
@@ -29,6 +28,7 @@ import org.jboss.tools.rsp.api.dao.WorkflowResponse;
 import javax.swing.tree.TreePath;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
 
 public class ServerActionAction extends AbstractTreeAction {
     private static final String ERROR_LISTING_ACTIONS = "Error listing server actions";
@@ -51,30 +51,27 @@ public class ServerActionAction extends AbstractTreeAction {
             Project project = ProjectManager.getInstance().getOpenProjects()[0];
             IntelliJRspClientLauncher client = RspCore.getDefault().getClient(state.getRsp());
             if (state.getRsp().getState() == IRspCore.IJServerState.STARTED) {
-                ListServerActionResponse actionResponse = null;
-                try {
-                    actionResponse = client.getServerProxy().listServerActions(state.getServerState().getServer()).get();
-                } catch (InterruptedException | ExecutionException ex) {
-                    apiError(ex, ERROR_LISTING_ACTIONS);
-                    return;
-                }
-
-                SelectServerActionDialog td = new SelectServerActionDialog(state,actionResponse);
-                UIHelper.executeInUI(() -> {
-                    td.show();
-                    ServerActionWorkflow chosen = td.getSelected();
-                    if( chosen != null && td.getExitCode() == DialogWrapper.OK_EXIT_CODE) {
-                        new Thread("Server Action Workflow: " + chosen.getActionLabel()) {
-                            public void run() {
-                                initiateActionWorkflow(state, client, chosen);
-                            }
-                        }.start();
-                    }
-                });
+                executeAsync("Listing actions of " + state.getServerState().getServer().getId(),
+                        () -> client.getServerProxy().listServerActions(state.getServerState().getServer()),
+                        actionResponse -> showActions(state, client, actionResponse),
+                        ERROR_LISTING_ACTIONS);
             }
         }
     }
 
+    private void showActions(RspTreeModel.ServerStateWrapper state, IntelliJRspClientLauncher client, ListServerActionResponse actionResponse) {
+        SelectServerActionDialog td = new SelectServerActionDialog(state,actionResponse);
+        td.show();
+        ServerActionWorkflow chosen = td.getSelected();
+        if( chosen != null && td.getExitCode() == DialogWrapper.OK_EXIT_CODE) {
+            new Thread("Server Action Workflow: " + chosen.getActionLabel()) {
+                public void run() {
+                    initiateActionWorkflow(state, client, chosen);
+                }
+            }.start();
+        }
+    }
+
     private void initiateActionWorkflow(RspTreeModel.ServerStateWrapper state, IntelliJRspClientLauncher client , ServerActionWorkflow chosen) {
         WorkflowResponse resp = chosen.getActionWorkflow();
         boolean done = false;
@@ -91,9 +88,10 @@ public class ServerActionAction extends AbstractTreeAction {
             req.setServerId(state.getServerState().getServer().getId());
             req.setData(toSend);
             try {
-                resp = client.getServerProxy().executeServerAction(req).get();
-            } catch (InterruptedException | ExecutionException e) {
+                resp = await(client.getServerProxy().executeServerAction(req), null, REQUEST_TIMEOUT);
+            } catch (InterruptedException | ExecutionException | TimeoutException e) {
                 apiError(e, ERROR_EXECUTE_ACTIONS);
+                return;
             }
         }
     }
@@ -35,10 +35,11 @@ public class StartRspAction extends AbstractTreeAction {
     @Override
     protected void actionPerformed(AnActionEvent e, TreePath treePath, Object selected) {
         if( selected instanceof IRsp) {
-            IRsp server = (IRsp)selected;
-            new Thread("Start RSP Server: " + server.getRspType().getId()) {
+            IRsp rsp = (IRsp)selected;
+            // Joining a running RSP locks the shared registry and probes its port, not on the UI thread
+            new Thread("Start RSP Server: " + rsp.getRspType().getId()) {
                 public void run() {
-                    RspCore.getDefault().startServer(server);
+                    RspCore.getDefault().startServer(rsp);
                 }
             }.start();
         }
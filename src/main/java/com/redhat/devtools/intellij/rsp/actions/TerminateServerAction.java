@@ -17,11 +17,9 @@ import com.redhat.devtools.intellij.rsp.client.IntelliJRspClientLauncher;
 import com.redhat.devtools.intellij.rsp.model.impl.RspCore;
 import com.redhat.devtools.intellij.rsp.ui.tree.RspTreeModel;
 import org.jboss.tools.rsp.api.ServerManagementAPIConstants;
-import org.jboss.tools.rsp.api.dao.Status;
 import org.jboss.tools.rsp.api.dao.StopServerAttributes;
 
 import javax.swing.tree.TreePath;
-import java.util.concurrent.ExecutionException;
 
 public class TerminateServerAction extends AbstractTreeAction {
     private static final String ERROR_TERMINATE_SERVER = "Error terminating server";
@@ -47,14 +45,14 @@ public class TerminateServerAction extends AbstractTreeAction {
             Project project = ProjectManager.getInstance().getOpenProjects()[0];
             IntelliJRspClientLauncher client = RspCore.getDefault().getClient(sel.getRsp());
             StopServerAttributes ssa = new StopServerAttributes(sel.getServerState().getServer().getId(), true);
-            try {
-                Status stat = client.getServerProxy().stopServerAsync(ssa).get();
-                if( !stat.isOK()) {
-                    statusError(stat, ERROR_TERMINATE_SERVER);
-                }
-            } catch (InterruptedException | ExecutionException ex) {
-                apiError(ex, ERROR_TERMINATE_SERVER);
-            }
+            executeAsync("Terminating server " + sel.getServerState().getServer().getId(), REQUEST_TIMEOUT,
+                    () -> client.getServerProxy().stopServerAsync(ssa),
+                    (stat, indicator) -> {
+                        if( !stat.isOK()) {
+                            statusError(stat, ERROR_TERMINATE_SERVER);
+                        }
+                        return null;
+                    }, null, ERROR_TERMINATE_SERVER);
         }
     }
 }
@@ -73,6 +73,14 @@ public class IntelliJRspClientLauncher {
         return this.myClient;
     }
 
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
     public boolean isConnectionActive() {
         return connectionOpen;
     }
@@ -0,0 +1,438 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package com.redhat.devtools.intellij.rsp.download;
+
+import com.intellij.openapi.progress.ProgressIndicator;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+
+/**
+ * Update an installed RSP from a remote archive without downloading all of it.
+ * The central directory of the new archive is fetched with range requests and
+ * compared to the installed files. Files whose size and CRC are unchanged are
+ * copied from the installation, only the changed entries are downloaded.
+ */
+public class DeltaUpdateUtility {
+    private static final String SEPARATOR = "/"; //$NON-NLS-1$
+    private static final int HTTP_PARTIAL_CONTENT = 206;
+    // Changed entries closer than this are fetched with a single request
+    private static final long MAX_RANGE_GAP = 64 * 1024;
+    // Share of the progress bar for checking the installed files and fetching the changed ones
+    private static final double VERIFY_WEIGHT = 0.2;
+    private static final double DOWNLOAD_WEIGHT = 0.8;
+
+    private final String url;
+    private String root = null;
+
+    public DeltaUpdateUtility(String url) {
+        this.url = url;
+    }
+
+    /**
+     * Build the new version in {@code destination}.
+     *
+     * @param installedHome the root folder of the installed version
+     * @param destination the empty folder to create the new version in
+     * @return false if the server does not support range requests; nothing was written
+     * @throws IOException if the update failed part way and a full download is required
+     */
+    public boolean update(File installedHome, File destination, ProgressIndicator progressIndicator) throws IOException {
+        ProgressReporter reporter = new ProgressReporter(progressIndicator);
+        ZipCentralDirectory directory = fetchCentralDirectory();
+        if (directory == null) {
+            return false;
+        }
+        List<ZipCentralDirectory.Entry> entries = new ArrayList<>(directory.getEntries());
+        root = findRoot(entries);
+
+        // Only files of the right size need their checksum computed
+        List<ZipCentralDirectory.Entry> candidates = new ArrayList<>();
+        List<ZipCentralDirectory.Entry> changed = new ArrayList<>();
+        long candidateBytes = 0;
+        for (ZipCentralDirectory.Entry entry : entries) {
+            File entryFile = new File(destination, entry.getName());
+            if (entry.isDirectory()) {
+                entryFile.mkdirs();
+                continue;
+            }
+            entryFile.getParentFile().mkdirs();
+            File installed = getInstalledFile(installedHome, entry);
+            if (installed.isFile() && installed.length() == entry.getSize()) {
+                candidates.add(entry);
+                candidateBytes += entry.getSize();
+            } else {
+                changed.add(entry);
+            }
+        }
+
+        reporter.startPhase("Comparing installed files", VERIFY_WEIGHT, candidateBytes);
+        for (ZipCentralDirectory.Entry entry : candidates) {
+            reporter.checkCanceled();
+            File installed = getInstalledFile(installedHome, entry);
+            if (computeCrc(installed, reporter) == entry.getCrc()) {
+                Files.copy(installed.toPath(), new File(destination, entry.getName()).toPath(),
+                        StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                changed.add(entry);
+            }
+        }
+        reporter.startPhase("Downloading changed files", DOWNLOAD_WEIGHT, 0);
+        fetchEntries(entries, changed, directory.getOffset(), destination, reporter);
+        reporter.done();
+        return true;
+    }
+
+    /*
+     * Discover the root folder of the new version, as UnzipUtility.getRoot() would.
+     */
+    public String getRoot() {
+        return root;
+    }
+
+    private ZipCentralDirectory fetchCentralDirectory() throws IOException {
+        ByteBuffer tail;
+        long tailStart;
+        try (RemoteRange range = openRange("bytes=-" + ZipCentralDirectory.MAX_EOCD_SEARCH)) {
+            if (range == null) {
+                return null;
+            }
+            tailStart = range.getStart();
+            tail = ByteBuffer.wrap(readAll(range.getStream()));
+        }
+        long[] location = ZipCentralDirectory.locate(tail);
+        long offset = location[0];
+        int length = (int) location[1];
+        if (offset >= tailStart && offset + length <= tailStart + tail.limit()) {
+            // Small archives, the tail already holds the whole central directory
+            ByteBuffer cd = tail.duplicate();
+            cd.position((int) (offset - tailStart));
+            cd.limit(cd.position() + length);
+            return ZipCentralDirectory.parse(offset, cd.slice());
+        }
+        try (RemoteRange range = openRange(toRange(offset, offset + length - 1))) {
+            if (range == null) {
+                return null;
+            }
+            byte[] cd = new byte[length];
+            readFully(range.getStream(), cd, length);
+            return ZipCentralDirectory.parse(offset, ByteBuffer.wrap(cd));
+        }
+    }
+
+    private File getInstalledFile(File installedHome, ZipCentralDirectory.Entry entry) {
+        return new File(installedHome, relativeName(entry.getName()));
+    }
+
+    private static long computeCrc(File installed, ProgressReporter reporter) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[16 * 1024];
+        try (InputStream in = Files.newInputStream(installed.toPath())) {
+            int len;
+            while ((len = in.read(buffer)) >= 0) {
+                crc.update(buffer, 0, len);
+                reporter.advance(len);
+            }
+        }
+        return crc.getValue();
+    }
+
+    /*
+     * An entry occupies the archive from its local header up to the local
+     * header of the entry that follows it. Neighbouring changed entries are
+     * coalesced so each request covers as many of them as possible.
+     */
+    private void fetchEntries(List<ZipCentralDirectory.Entry> all, List<ZipCentralDirectory.Entry> changed,
+                              long centralDirectoryOffset, File destination,
+                              ProgressReporter reporter) throws IOException {
+        if (changed.isEmpty()) {
+            return;
+        }
+        all.sort((a, b) -> Long.compare(a.getLocalHeaderOffset(), b.getLocalHeaderOffset()));
+        changed.sort((a, b) -> Long.compare(a.getLocalHeaderOffset(), b.getLocalHeaderOffset()));
+
+        List<List<ZipCentralDirectory.Entry>> groups = new ArrayList<>();
+        List<long[]> spans = new ArrayList<>();
+        long total = 0;
+        int next = 0;
+        for (ZipCentralDirectory.Entry entry : changed) {
+            long start = entry.getLocalHeaderOffset();
+            while (next < all.size() && all.get(next).getLocalHeaderOffset() <= start) {
+                next++;
+            }
+            long end = next < all.size() ? all.get(next).getLocalHeaderOffset() : centralDirectoryOffset;
+            long[] span = spans.isEmpty() ? null : spans.get(spans.size() - 1);
+            if (span != null && start - span[1] <= MAX_RANGE_GAP) {
+                total += end - span[1];
+                span[1] = end;
+                groups.get(groups.size() - 1).add(entry);
+            } else {
+                total += end - start;
+                spans.add(new long[]{start, end});
+                List<ZipCentralDirectory.Entry> group = new ArrayList<>();
+                group.add(entry);
+                groups.add(group);
+            }
+        }
+
+        reporter.setTotal(total);
+        for (int i = 0; i < groups.size(); i++) {
+            long[] span = spans.get(i);
+            try (RemoteRange range = openRange(toRange(span[0], span[1] - 1))) {
+                if (range == null || range.getStart() != span[0]) {
+                    throw new IOException("The server did not return the requested range of " + url);
+                }
+                RangeReader reader = new RangeReader(range.getStream(), span[0], reporter);
+                for (ZipCentralDirectory.Entry entry : groups.get(i)) {
+                    extractEntry(reader, entry, new File(destination, entry.getName()));
+                }
+            }
+        }
+    }
+
+    private void extractEntry(RangeReader reader, ZipCentralDirectory.Entry entry, File entryFile) throws IOException {
+        reader.skipTo(entry.getLocalHeaderOffset());
+        byte[] header = new byte[ZipCentralDirectory.LOC_SIZE];
+        reader.readFully(header, header.length);
+        int dataStart = ZipCentralDirectory.getDataStart(ByteBuffer.wrap(header));
+        reader.skipTo(entry.getLocalHeaderOffset() + dataStart);
+
+        CRC32 crc = new CRC32();
+        long written;
+        try (OutputStream out = new FileOutputStream(entryFile)) {
+            if (entry.getMethod() == ZipEntry.STORED) {
+                written = copyStored(reader, entry.getCompressedSize(), out, crc);
+            } else if (entry.getMethod() == ZipEntry.DEFLATED) {
+                written = inflate(reader, entry.getCompressedSize(), out, crc);
+            } else {
+                throw new IOException("Unsupported compression method for " + entry.getName());
+            }
+        }
+        if (written != entry.getSize() || crc.getValue() != entry.getCrc()) {
+            throw new IOException("Checksum mismatch for " + entry.getName());
+        }
+    }
+
+    private long copyStored(RangeReader reader, long size, OutputStream out, CRC32 crc) throws IOException {
+        byte[] buffer = new byte[16 * 1024];
+        long remaining = size;
+        while (remaining > 0) {
+            int len = (int) Math.min(buffer.length, remaining);
+            reader.readFully(buffer, len);
+            out.write(buffer, 0, len);
+            crc.update(buffer, 0, len);
+            remaining -= len;
+        }
+        return size;
+    }
+
+    private long inflate(RangeReader reader, long compressedSize, OutputStream out, CRC32 crc) throws IOException {
+        Inflater inflater = new Inflater(true);
+        byte[] input = new byte[16 * 1024];
+        byte[] output = new byte[32 * 1024];
+        long remaining = compressedSize;
+        long written = 0;
+        boolean padded = false;
+        try {
+            while (!inflater.finished()) {
+                if (inflater.needsInput()) {
+                    if (remaining > 0) {
+                        int len = (int) Math.min(input.length, remaining);
+                        reader.readFully(input, len);
+                        inflater.setInput(input, 0, len);
+                        remaining -= len;
+                    } else if (!padded) {
+                        // Raw inflate may need one extra byte past the data to finish
+                        inflater.setInput(new byte[1]);
+                        padded = true;
+                    } else {
+                        throw new IOException("Unexpected end of compressed data");
+                    }
+                }
+                int len = inflater.inflate(output);
+                if (len > 0) {
+                    out.write(output, 0, len);
+                    crc.update(output, 0, len);
+                    written += len;
+                }
+            }
+        } catch (DataFormatException dfe) {
+            throw new IOException("Invalid compressed data", dfe);
+        } finally {
+            inflater.end();
+        }
+        return written;
+    }
+
+    private String relativeName(String entryName) {
+        if (root == null) {
+            return entryName;
+        }
+        return entryName.substring(root.length() + 1);
+    }
+
+    private static String findRoot(List<ZipCentralDirectory.Entry> entries) {
+        String root = null;
+        for (ZipCentralDirectory.Entry entry : entries) {
+            String entryName = entry.getName();
+            if (entryName.isEmpty() || entryName.startsWith(SEPARATOR) || entryName.indexOf(SEPARATOR) == -1) {
+                return null;
+            }
+            String directory = entryName.substring(0, entryName.indexOf(SEPARATOR));
+            if (root == null) {
+                root = directory;
+            } else if (!directory.equals(root)) {
+                return null;
+            }
+        }
+        return root;
+    }
+
+    /**
+     * Request a byte range of the archive.
+     *
+     * @param range the value of the Range header
+     * @return the requested bytes, or null if the server sent something other than a partial response
+     */
+    protected RemoteRange openRange(String range) throws IOException {
+        OkHttpClient client = NetworkUtils.getClient();
+        Request request = new Request.Builder().url(url).header("Range", range).build();
+        Response response = client.newCall(request).execute();
+        if (response.code() != HTTP_PARTIAL_CONTENT) {
+            response.close();
+            return null;
+        }
+        long start = parseContentRangeStart(response.header("Content-Range"));
+        if (start < 0) {
+            response.close();
+            return null;
+        }
+        return new RemoteRange(start, response.body().byteStream(), response);
+    }
+
+    private static long parseContentRangeStart(String contentRange) {
+        // bytes <first>-<last>/<length>
+        if (contentRange == null || !contentRange.startsWith("bytes ")) {
+            return -1;
+        }
+        int dash = contentRange.indexOf('-');
+        if (dash == -1) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(contentRange.substring("bytes ".length(), dash).trim());
+        } catch (NumberFormatException nfe) {
+            return -1;
+        }
+    }
+
+    private static String toRange(long first, long last) {
+        return "bytes=" + first + "-" + last;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[16 * 1024];
+        int len;
+        while ((len = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, len);
+        }
+        return out.toByteArray();
+    }
+
+    private static void readFully(InputStream in, byte[] b, int length) throws IOException {
+        int done = 0;
+        while (done < length) {
+            int len = in.read(b, done, length - done);
+            if (len < 0) {
+                throw new IOException("Unexpected end of range");
+            }
+            done += len;
+        }
+    }
+
+    /**
+     * A byte range of the remote archive, starting at {@link #getStart()}
+     */
+    protected static class RemoteRange implements Closeable {
+        private final long start;
+        private final InputStream stream;
+        private final Closeable owner;
+
+        public RemoteRange(long start, InputStream stream, Closeable owner) {
+            this.start = start;
+            this.stream = stream;
+            this.owner = owner;
+        }
+
+        public long getStart() {
+            return start;
+        }
+
+        public InputStream getStream() {
+            return stream;
+        }
+
+        @Override
+        public void close() throws IOException {
+            owner.close();
+        }
+    }
+
+    /**
+     * Reads a range sequentially, tracking the position in the archive and reporting progress.
+     */
+    private static class RangeReader {
+        private final InputStream in;
+        private final ProgressReporter reporter;
+        private long position;
+
+        RangeReader(InputStream in, long position, ProgressReporter reporter) {
+            this.in = in;
+            this.position = position;
+            this.reporter = reporter;
+        }
+
+        void readFully(byte[] b, int length) throws IOException {
+            reporter.checkCanceled();
+            DeltaUpdateUtility.readFully(in, b, length);
+            position += length;
+            reporter.advance(length);
+        }
+
+        void skipTo(long target) throws IOException {
+            if (target < position) {
+                throw new IOException("Entries overlap in the archive");
+            }
+            byte[] buffer = new byte[8 * 1024];
+            while (position < target) {
+                readFully(buffer, (int) Math.min(buffer.length, target - position));
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package com.redhat.devtools.intellij.rsp.download;
+
+import com.redhat.devtools.intellij.rsp.settings.RspSettings;
+
+import java.io.File;
+import java.net.URI;
+import java.net.URISyntaxException;
+
+/**
+ * A local copy of the RSP distributions, for machines without (fast) network access.
+ * The mirror holds one folder per RSP id, containing the LATEST properties
+ * file and the distribution zips under their original file names:
+ * <pre>
+ *   &lt;mirror&gt;/&lt;rsp id&gt;/LATEST
+ *   &lt;mirror&gt;/&lt;rsp id&gt;/org.jboss.tools.rsp.distribution-&lt;version&gt;.zip
+ * </pre>
+ */
+public class DistributionMirror {
+    public static final String LATEST = "LATEST";
+
+    private final File root;
+
+    private DistributionMirror(File root) {
+        this.root = root;
+    }
+
+    /**
+     * Get the mirror set in the settings, or null if none is configured
+     */
+    public static DistributionMirror getConfigured() {
+        RspSettings settings = RspSettings.getInstance();
+        return settings == null ? null : fromLocation(settings.getMirrorLocation());
+    }
+
+    /**
+     * @param location a folder or a file:// url
+     * @return the mirror, or null if the location is empty or not a local folder
+     */
+    public static DistributionMirror fromLocation(String location) {
+        if( location == null || location.trim().isEmpty())
+            return null;
+        String trimmed = location.trim();
+        if( trimmed.startsWith("file:")) {
+            try {
+                return new DistributionMirror(new File(new URI(trimmed)));
+            } catch(URISyntaxException | IllegalArgumentException e) {
+                return null;
+            }
+        }
+        if( trimmed.contains("://"))
+            return null;
+        return new DistributionMirror(new File(trimmed));
+    }
+
+    public File getRoot() {
+        return root;
+    }
+
+    public File getLatestFile(String rspId) {
+        return new File(new File(root, rspId), LATEST);
+    }
+
+    public File getDistributionFile(String rspId, String url) {
+        String name = url.substring(url.lastIndexOf('/') + 1);
+        return new File(new File(root, rspId), name);
+    }
+
+    /**
+     * Get the mirrored LATEST properties of an RSP, or null if they are not mirrored
+     */
+    public File findLatest(String rspId) {
+        File f = getLatestFile(rspId);
+        return f.isFile() ? f : null;
+    }
+
+    /**
+     * Get the mirrored copy of a distribution, or null if it is not mirrored
+     */
+    public File findDistribution(String rspId, String url) {
+        if( url == null )
+            return null;
+        File f = getDistributionFile(rspId, url);
+        return f.isFile() ? f : null;
+    }
+}
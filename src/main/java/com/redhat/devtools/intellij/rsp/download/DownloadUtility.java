@@ -15,40 +15,161 @@ import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.zip.ZipException;
 
 /**
  * Download a remote file
  */
 public class DownloadUtility {
+    // Share of the progress bar for each phase when the archive cannot be extracted while downloading
+    private static final double DOWNLOAD_WEIGHT = 0.7;
+    private static final double EXTRACT_WEIGHT = 0.3;
 
     public void download(String url, Path dlFilePath, ProgressIndicator progressIndicator) throws IOException {
         OkHttpClient client = NetworkUtils.getClient();
         Request request = new Request.Builder().url(url).build();
-        Response response = client.newCall(request).execute();
-        downloadFile(response.body().byteStream(), dlFilePath, progressIndicator, response.body().contentLength());
+        ProgressReporter reporter = new ProgressReporter(progressIndicator);
+        try (Response response = client.newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                throw new IOException("Unable to download " + url + ": HTTP " + response.code());
+            }
+            reporter.startPhase("Downloading " + url, 1, response.body().contentLength());
+            downloadFile(response.body().byteStream(), dlFilePath, reporter);
+        }
+        reporter.done();
+    }
+
+    /**
+     * Download an archive and extract it while it downloads. Everything read
+     * from the network is also written to {@code dlFilePath}, so the archive
+     * still ends up in the download cache. Archives that cannot be read
+     * sequentially are extracted from the cached copy once the download completes.
+     *
+     * @return the single root folder of the archive, or null if there is none
+     */
+    public String downloadAndExtract(String url, Path dlFilePath, Path destinationFolder,
+                                     ProgressIndicator progressIndicator) throws IOException {
+        OkHttpClient client = NetworkUtils.getClient();
+        Request request = new Request.Builder().url(url).build();
+        Files.createDirectories(dlFilePath.getParent());
+        UnzipUtility util = new UnzipUtility(dlFilePath.toFile());
+        ProgressReporter reporter = new ProgressReporter(progressIndicator);
+        boolean streamed = false;
+        try (Response response = client.newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                throw new IOException("Unable to download " + url + ": HTTP " + response.code());
+            }
+            reporter.startPhase("Downloading " + url, DOWNLOAD_WEIGHT, response.body().contentLength());
+            try (OutputStream cache = Files.newOutputStream(dlFilePath);
+                 TeeInputStream tee = new TeeInputStream(response.body().byteStream(), cache, reporter)) {
+                try {
+                    util.extract(tee, destinationFolder.toFile());
+                    streamed = true;
+                } catch (ZipException ze) {
+                    // Some entries can only be read through the central directory.
+                }
+                // The central directory follows the last entry, finish writing the cache
+                tee.drain();
+            }
+        } catch (IOException ioe) {
+            Files.deleteIfExists(dlFilePath);
+            throw ioe;
+        }
+        if (!streamed) {
+            reporter.startPhase("Extracting " + dlFilePath.getFileName(), EXTRACT_WEIGHT, 0);
+            util.setProgressReporter(reporter);
+            util.extractParallel(destinationFolder.toFile());
+        }
+        reporter.done();
+        return util.getRoot();
+    }
+
+    /**
+     * Extract a local archive, for example from a distribution mirror
+     *
+     * @return the single root folder of the archive, or null if there is none
+     */
+    public String extract(Path archive, Path destinationFolder, ProgressIndicator progressIndicator) throws IOException {
+        UnzipUtility util = new UnzipUtility(archive.toFile());
+        ProgressReporter reporter = new ProgressReporter(progressIndicator);
+        reporter.startPhase("Extracting " + archive.getFileName(), 1, 0);
+        util.setProgressReporter(reporter);
+        util.extractParallel(destinationFolder.toFile());
+        reporter.done();
+        return util.getRoot();
     }
 
     public void uncompress(Path dlFilePath, Path destinationFolder) throws IOException {
-        new UnzipUtility(dlFilePath.toFile()).extract(destinationFolder.toFile());
+        new UnzipUtility(dlFilePath.toFile()).extractParallel(destinationFolder.toFile());
     }
 
 
     private static void downloadFile(InputStream input, Path dlFileName,
-                                     ProgressIndicator progressIndicator, long size) throws IOException {
-        byte[] buffer = new byte[4096];
+                                     ProgressReporter reporter) throws IOException {
+        byte[] buffer = new byte[16 * 1024];
         Files.createDirectories(dlFileName.getParent());
         try (OutputStream output = Files.newOutputStream(dlFileName)) {
             int lg;
-            long accumulated = 0;
-            while (((lg = input.read(buffer)) > 0) && !progressIndicator.isCanceled()) {
+            while (((lg = input.read(buffer)) > 0) && !reporter.isCanceled()) {
                 output.write(buffer, 0, lg);
-                accumulated += lg;
-                progressIndicator.setFraction((double) accumulated / size);
+                reporter.advance(lg);
+            }
+        }
+    }
+
+    /**
+     * Copies everything read through it to the download cache and reports progress.
+     */
+    private static class TeeInputStream extends FilterInputStream {
+        private final OutputStream copy;
+        private final ProgressReporter reporter;
+
+        TeeInputStream(InputStream in, OutputStream copy, ProgressReporter reporter) {
+            super(in);
+            this.copy = copy;
+            this.reporter = reporter;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            int lg = read(one, 0, 1);
+            return lg <= 0 ? -1 : (one[0] & 0xff);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            reporter.checkCanceled();
+            int lg = super.read(b, off, len);
+            if (lg > 0) {
+                copy.write(b, off, lg);
+                reporter.advance(lg);
+            }
+            return lg;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            byte[] buffer = new byte[(int) Math.min(n, 8192)];
+            int lg = read(buffer, 0, buffer.length);
+            return Math.max(lg, 0);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        void drain() throws IOException {
+            byte[] buffer = new byte[16 * 1024];
+            while (read(buffer, 0, buffer.length) >= 0) {
+                // read() writes to the cache
             }
         }
     }
@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package com.redhat.devtools.intellij.rsp.download;
+
+import com.intellij.openapi.progress.ProgressIndicator;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reports the progress of a download or extraction to a {@link ProgressIndicator}.
+ * The work is split into weighted phases, like downloading and extracting,
+ * that together fill the indicator once. Workers report every chunk they
+ * process, possibly from several threads, but the indicator is only updated
+ * a few times per second, with the throughput and the time left.
+ */
+public class ProgressReporter {
+    private static final long UPDATE_INTERVAL = TimeUnit.MILLISECONDS.toNanos(200);
+    private static final double MB = 1024 * 1024;
+
+    private final ProgressIndicator indicator;
+    private final AtomicLong done = new AtomicLong();
+    private final AtomicLong lastUpdate = new AtomicLong();
+
+    private volatile double phaseStart = 0;
+    private volatile double phaseWeight = 0;
+    private volatile long phaseTotal = 0;
+    private volatile long phaseStartTime;
+
+    public ProgressReporter(ProgressIndicator indicator) {
+        this.indicator = indicator;
+    }
+
+    /**
+     * Complete the current phase and start the next one.
+     *
+     * @param text the text shown on the indicator during this phase
+     * @param weight the share of the whole operation this phase represents
+     * @param total the amount of work in this phase, in bytes, or 0 if not known yet
+     */
+    public synchronized void startPhase(String text, double weight, long total) {
+        phaseStart = Math.min(1, phaseStart + phaseWeight);
+        phaseWeight = weight;
+        phaseTotal = total;
+        phaseStartTime = System.nanoTime();
+        // The first rate is measured over a full interval
+        lastUpdate.set(phaseStartTime);
+        done.set(0);
+        indicator.setText(text);
+        indicator.setText2("");
+        indicator.setFraction(phaseStart);
+    }
+
+    /**
+     * Set the amount of work of the current phase, once it is known
+     */
+    public void setTotal(long total) {
+        phaseTotal = total;
+    }
+
+    /**
+     * Record that some work was done. Safe to call from several threads.
+     */
+    public void advance(long amount) {
+        long current = done.addAndGet(amount);
+        long now = System.nanoTime();
+        long last = lastUpdate.get();
+        if (now - last >= UPDATE_INTERVAL && lastUpdate.compareAndSet(last, now)) {
+            update(current, now);
+        }
+    }
+
+    public void checkCanceled() throws IOException {
+        if (indicator.isCanceled()) {
+            throw new IOException("Download canceled");
+        }
+    }
+
+    public boolean isCanceled() {
+        return indicator.isCanceled();
+    }
+
+    /**
+     * Fill the indicator once all phases are complete
+     */
+    public synchronized void done() {
+        phaseStart = 1;
+        phaseWeight = 0;
+        indicator.setText2("");
+        indicator.setFraction(1);
+    }
+
+    private void update(long current, long now) {
+        long total = phaseTotal;
+        double elapsed = (now - phaseStartTime) / 1e9;
+        double rate = elapsed > 0 ? current / elapsed : 0;
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%.1f MB", current / MB));
+        if (total > 0) {
+            indicator.setFraction(phaseStart + phaseWeight * Math.min(1, (double) current / total));
+            sb.append(String.format(" of %.1f MB", total / MB));
+        }
+        sb.append(String.format(" (%.1f MB/s", rate / MB));
+        if (total > 0 && rate > 0 && current < total) {
+            sb.append(", ").append(formatTimeLeft((long) ((total - current) / rate))).append(" left");
+        }
+        sb.append(")");
+        indicator.setText2(sb.toString());
+    }
+
+    private static String formatTimeLeft(long seconds) {
+        if (seconds < 60) {
+            return seconds + " s";
+        }
+        if (seconds < 3600) {
+            return String.format("%d min %d s", seconds / 60, seconds % 60);
+        }
+        return String.format("%d h %d min", seconds / 3600, (seconds % 3600) / 60);
+    }
+}
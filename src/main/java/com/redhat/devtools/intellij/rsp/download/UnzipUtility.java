@@ -15,8 +15,26 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
@@ -28,21 +46,43 @@ public class UnzipUtility {
     private static final String EXTRACTING = "Extracting ..."; //$NON-NLS-1$
     private static final String SEPARATOR = "/"; //$NON-NLS-1$
 
+    // Entries at least this large are inflated on their own, largest first
+    private static final long LARGE_ENTRY_SIZE = 1024 * 1024;
+    // Small entries are grouped so a worker does not borrow a zip handle per file
+    private static final long SMALL_BATCH_BYTES = 4 * 1024 * 1024;
+    private static final int SMALL_BATCH_ENTRIES = 256;
+    private static final int MAX_EXTRACT_THREADS = 8;
+
     private File file;
     private String discoveredRoot = null;
     private boolean rootEntryImpossible = false;
+    private String possibleRoot = null;
+
+    // Raw access to the archive, used to copy STORED entries without inflating them
+    private FileChannel archive;
+    private ZipCentralDirectory centralDirectory;
+
+    private ProgressReporter progress;
 
     public UnzipUtility(File file) {
         this.file = file;
     }
 
+    /**
+     * Report the uncompressed bytes written by {@link #extractParallel(File)}
+     */
+    public void setProgressReporter(ProgressReporter progress) {
+        this.progress = progress;
+    }
+
     public void extract(File destination) throws IOException {
         if (file == null || !file.exists()) {
             return;
         }
 
-        String possibleRoot = null;
+        possibleRoot = null;
         destination.mkdirs();
+        openRawAccess();
         try(ZipFile zipFile = new ZipFile(file)) {
             Enumeration<? extends ZipEntry> entries = zipFile.entries();
             while (entries.hasMoreElements()) {
@@ -50,39 +90,250 @@ public class UnzipUtility {
                 String entryName = entry.getName();
                 File entryFile = new File(destination, entryName);
                 createEntry(zipFile, entry, entryFile);
-
                 // Lets check for a possible root, to avoid scanning the archive again later
-                if (!rootEntryImpossible && discoveredRoot == null) {
-                    // Check for a root
-                    if (entryName == null || entryName.isEmpty() || entryName.startsWith(SEPARATOR) || entryName.indexOf(SEPARATOR) == -1) {
-                        rootEntryImpossible = true;
-                        possibleRoot = null;
-                    } else {
-                        String directory = entryName.substring(0, entryName.indexOf(SEPARATOR));
-                        if (possibleRoot == null) {
-                            possibleRoot = directory;
-                        } else if (!directory.equals(possibleRoot)) {
-                            rootEntryImpossible = true;
-                            possibleRoot = null;
-                        }
-                    }
-                }
+                checkRoot(entryName);
             }
         } catch (IOException e) {
-            boolean isZipped = false;
-            try (ZipInputStream test = new ZipInputStream(new FileInputStream(file))) {
-                isZipped = test.getNextEntry() != null;
-            } catch(IOException ioe) {
-                // ignore
+            throw openError(e);
+        } finally {
+            closeRawAccess();
+        }
+        discoveredRoot = possibleRoot;
+    }
+
+    /**
+     * Extract an archive while it is being read, for example straight from
+     * the network. Only the local entry headers are used, so the root folder
+     * is known once the stream is consumed and {@link #getRoot()} does not
+     * have to open the archive again.
+     *
+     * @param in the archive content, left open for the caller to drain
+     * @param destination the folder to extract into
+     * @throws IOException if the stream is not a zip archive that can be read sequentially
+     */
+    public void extract(InputStream in, File destination) throws IOException {
+        possibleRoot = null;
+        destination.mkdirs();
+        ZipInputStream zis = new ZipInputStream(in);
+        ZipEntry entry;
+        while ((entry = zis.getNextEntry()) != null) {
+            String entryName = entry.getName();
+            File entryFile = new File(destination, entryName);
+            if (entry.isDirectory()) {
+                entryFile.mkdirs();
+            } else {
+                entryFile.getParentFile().mkdirs();
+                try (OutputStream out = new FileOutputStream(entryFile)) {
+                    copy(zis, out);
+                }
             }
+            checkRoot(entryName);
+        }
+        discoveredRoot = possibleRoot;
+    }
+
+    /**
+     * Extract the archive using a bounded pool of workers. The directory tree
+     * is created up front, so workers only ever write files. Each worker
+     * inflates through its own {@link ZipFile} handle. The extracted content
+     * is identical to {@link #extract(File)}.
+     *
+     * @param destination the folder to extract into
+     * @throws IOException if the archive cannot be read or a file cannot be written
+     */
+    public void extractParallel(File destination) throws IOException {
+        if (file == null || !file.exists()) {
+            return;
+        }
 
-            String msg = "Error opening zip file " + file.getAbsolutePath();
-            if( !isZipped) {
-                msg += ";  file may not be a properly formated zip file.";
+        possibleRoot = null;
+        destination.mkdirs();
+        // Keyed by name so a duplicated entry is written once, with the last value, as a serial extract would
+        Map<String, ZipEntry> toWrite = new LinkedHashMap<>();
+        Set<File> directories = new LinkedHashSet<>();
+        try(ZipFile zipFile = new ZipFile(file)) {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                String entryName = entry.getName();
+                File entryFile = new File(destination, entryName);
+                if (entry.isDirectory()) {
+                    directories.add(entryFile);
+                } else {
+                    directories.add(entryFile.getParentFile());
+                    toWrite.put(entryName, entry);
+                }
+                checkRoot(entryName);
             }
-            throw new IOException(msg, e);
+        } catch (IOException e) {
+            throw openError(e);
         }
         discoveredRoot = possibleRoot;
+        if (progress != null) {
+            long total = 0;
+            for (ZipEntry entry : toWrite.values()) {
+                total += Math.max(0, entry.getSize());
+            }
+            progress.setTotal(total);
+        }
+
+        for (File dir : directories) {
+            dir.mkdirs();
+        }
+
+        List<List<ZipEntry>> batches = schedule(new ArrayList<>(toWrite.values()));
+        if (batches.isEmpty()) {
+            return;
+        }
+        int threads = Math.min(batches.size(),
+                Math.min(MAX_EXTRACT_THREADS, Runtime.getRuntime().availableProcessors()));
+        openRawAccess();
+        try {
+            runBatches(batches, destination, Math.max(1, threads));
+        } finally {
+            closeRawAccess();
+        }
+    }
+
+    /*
+     * Large entries each get their own task, largest first, so the longest
+     * inflates start immediately. Small entries are packed into batches that
+     * fill the remaining worker time.
+     */
+    private List<List<ZipEntry>> schedule(List<ZipEntry> entries) {
+        List<ZipEntry> large = new ArrayList<>();
+        List<ZipEntry> small = new ArrayList<>();
+        for (ZipEntry entry : entries) {
+            if (entry.getSize() >= LARGE_ENTRY_SIZE) {
+                large.add(entry);
+            } else {
+                small.add(entry);
+            }
+        }
+        large.sort((a, b) -> Long.compare(b.getSize(), a.getSize()));
+
+        List<List<ZipEntry>> batches = new ArrayList<>();
+        for (ZipEntry entry : large) {
+            List<ZipEntry> single = new ArrayList<>(1);
+            single.add(entry);
+            batches.add(single);
+        }
+        List<ZipEntry> current = new ArrayList<>();
+        long currentBytes = 0;
+        for (ZipEntry entry : small) {
+            current.add(entry);
+            currentBytes += Math.max(0, entry.getSize());
+            if (currentBytes >= SMALL_BATCH_BYTES || current.size() >= SMALL_BATCH_ENTRIES) {
+                batches.add(current);
+                current = new ArrayList<>();
+                currentBytes = 0;
+            }
+        }
+        if (!current.isEmpty()) {
+            batches.add(current);
+        }
+        return batches;
+    }
+
+    private void runBatches(List<List<ZipEntry>> batches, File destination, int threads) throws IOException {
+        BlockingQueue<ZipFile> handles = new ArrayBlockingQueue<>(threads);
+        List<ZipFile> opened = new ArrayList<>(threads);
+        ExecutorService pool = Executors.newFixedThreadPool(threads, new ExtractThreadFactory());
+        try {
+            for (int i = 0; i < threads; i++) {
+                ZipFile zf = new ZipFile(file);
+                opened.add(zf);
+                handles.add(zf);
+            }
+            List<Future<Void>> results = new ArrayList<>(batches.size());
+            for (List<ZipEntry> batch : batches) {
+                results.add(pool.submit(extractBatch(batch, destination, handles)));
+            }
+            for (Future<Void> result : results) {
+                result.get();
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw interrupted();
+        } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof InterruptedException) {
+                throw interrupted();
+            }
+            throw new IOException("Error extracting " + file.getAbsolutePath(), cause);
+        } finally {
+            pool.shutdownNow();
+            for (ZipFile zf : opened) {
+                try {
+                    zf.close();
+                } catch (IOException ioe) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    private Callable<Void> extractBatch(List<ZipEntry> batch, File destination, BlockingQueue<ZipFile> handles) {
+        return () -> {
+            ZipFile zipFile = handles.take();
+            try {
+                for (ZipEntry entry : batch) {
+                    // A batch that ends early must not look like a complete extract
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw interrupted();
+                    }
+                    if (progress != null) {
+                        progress.checkCanceled();
+                    }
+                    // Look the entry up again, it belongs to the handle that listed it
+                    ZipEntry own = zipFile.getEntry(entry.getName());
+                    writeFile(zipFile, own, new File(destination, entry.getName()));
+                }
+            } finally {
+                handles.add(zipFile);
+            }
+            return null;
+        };
+    }
+
+    private InterruptedIOException interrupted() {
+        return new InterruptedIOException("Extraction of " + file.getAbsolutePath() + " was interrupted");
+    }
+
+    private void checkRoot(String entryName) {
+        if (!rootEntryImpossible && discoveredRoot == null) {
+            // Check for a root
+            if (entryName == null || entryName.isEmpty() || entryName.startsWith(SEPARATOR) || entryName.indexOf(SEPARATOR) == -1) {
+                rootEntryImpossible = true;
+                possibleRoot = null;
+            } else {
+                String directory = entryName.substring(0, entryName.indexOf(SEPARATOR));
+                if (possibleRoot == null) {
+                    possibleRoot = directory;
+                } else if (!directory.equals(possibleRoot)) {
+                    rootEntryImpossible = true;
+                    possibleRoot = null;
+                }
+            }
+        }
+    }
+
+    private IOException openError(IOException e) {
+        boolean isZipped = false;
+        try (ZipInputStream test = new ZipInputStream(new FileInputStream(file))) {
+            isZipped = test.getNextEntry() != null;
+        } catch(IOException ioe) {
+            // ignore
+        }
+
+        String msg = "Error opening zip file " + file.getAbsolutePath();
+        if( !isZipped) {
+            msg += ";  file may not be a properly formated zip file.";
+        }
+        return new IOException(msg, e);
     }
 
     private void createEntry(ZipFile zipFile,
@@ -91,11 +342,72 @@ public class UnzipUtility {
             entryFile.mkdirs();
         } else {
             entryFile.getParentFile().mkdirs();
-            try(InputStream in = zipFile.getInputStream(entry);
-                OutputStream out = new FileOutputStream(entryFile)) {
-                copy(in, out);
+            writeFile(zipFile, entry, entryFile);
+        }
+    }
+
+    private void writeFile(ZipFile zipFile, ZipEntry entry, File entryFile) throws IOException {
+        if (entry.getMethod() == ZipEntry.STORED && transferStored(entry, entryFile)) {
+            return;
+        }
+        try(InputStream in = zipFile.getInputStream(entry);
+            OutputStream out = new FileOutputStream(entryFile)) {
+            copy(in, out);
+        }
+    }
+
+    /*
+     * A STORED entry is a verbatim copy of the file, so its bytes can be
+     * transferred from the archive to the destination without passing
+     * through the heap. Returns false if the entry must be read normally.
+     */
+    private boolean transferStored(ZipEntry entry, File entryFile) throws IOException {
+        if (archive == null || centralDirectory == null) {
+            return false;
+        }
+        ZipCentralDirectory.Entry raw = centralDirectory.getEntry(entry.getName());
+        if (raw == null || !raw.isStored() || raw.getSize() != entry.getSize()) {
+            return false;
+        }
+        long start = ZipCentralDirectory.getDataOffset(archive, raw);
+        long size = raw.getSize();
+        try (FileChannel out = FileChannel.open(entryFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long done = 0;
+            while (done < size) {
+                long count = archive.transferTo(start + done, size - done, out);
+                if (count <= 0) {
+                    throw new IOException("Unexpected end of archive while extracting " + entry.getName());
+                }
+                done += count;
             }
         }
+        if (progress != null) {
+            progress.advance(size);
+        }
+        return true;
+    }
+
+    private void openRawAccess() {
+        try {
+            archive = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            centralDirectory = ZipCentralDirectory.read(archive);
+        } catch (IOException ioe) {
+            // Not readable by the raw reader (ie zip64), every entry goes through ZipFile
+            closeRawAccess();
+        }
+    }
+
+    private void closeRawAccess() {
+        if (archive != null) {
+            try {
+                archive.close();
+            } catch (IOException ioe) {
+                // ignore
+            }
+        }
+        archive = null;
+        centralDirectory = null;
     }
 
     private void copy(InputStream in, OutputStream out) throws IOException {
@@ -103,9 +415,22 @@ public class UnzipUtility {
         int len;
         while ((len = in.read(buffer)) >= 0) {
             out.write(buffer, 0, len);
+            if (progress != null) {
+                progress.advance(len);
+            }
         }
     }
 
+    private static class ExtractThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "Extracting archive " + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
 
 
     /*
@@ -0,0 +1,215 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package com.redhat.devtools.intellij.rsp.download;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+
+/**
+ * A minimal reader for the central directory of a zip archive.
+ * {@link java.util.zip.ZipFile} does not expose where an entry's data
+ * starts in the archive, which is needed to copy raw entry bytes.
+ * Zip64 archives are not supported.
+ */
+public class ZipCentralDirectory {
+    private static final int EOCD_SIGNATURE = 0x06054b50;
+    private static final int CEN_SIGNATURE = 0x02014b50;
+    private static final int LOC_SIGNATURE = 0x04034b50;
+    private static final int EOCD_SIZE = 22;
+    private static final int CEN_SIZE = 46;
+    public static final int LOC_SIZE = 30;
+    /** The end record plus the longest possible archive comment */
+    public static final int MAX_EOCD_SEARCH = EOCD_SIZE + 0xFFFF;
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+    /**
+     * One entry of the central directory
+     */
+    public static class Entry {
+        private final String name;
+        private final int method;
+        private final long crc;
+        private final long compressedSize;
+        private final long size;
+        private final long localHeaderOffset;
+
+        Entry(String name, int method, long crc, long compressedSize, long size, long localHeaderOffset) {
+            this.name = name;
+            this.method = method;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+
+        public String getName() {
+            return name;
+        }
+        public int getMethod() {
+            return method;
+        }
+        public long getCrc() {
+            return crc;
+        }
+        public long getCompressedSize() {
+            return compressedSize;
+        }
+        public long getSize() {
+            return size;
+        }
+        public long getLocalHeaderOffset() {
+            return localHeaderOffset;
+        }
+        public boolean isDirectory() {
+            return name.endsWith("/");
+        }
+        public boolean isStored() {
+            return method == ZipEntry.STORED && compressedSize == size;
+        }
+    }
+
+    private final long offset;
+    private final long length;
+    private final List<Entry> entries;
+    private final Map<String, Entry> byName;
+
+    private ZipCentralDirectory(long offset, long length, List<Entry> entries) {
+        this.offset = offset;
+        this.length = length;
+        this.entries = Collections.unmodifiableList(entries);
+        this.byName = new HashMap<>();
+        for (Entry e : entries) {
+            byName.put(e.getName(), e);
+        }
+    }
+
+    /**
+     * Read the central directory of a local archive
+     */
+    public static ZipCentralDirectory read(FileChannel archive) throws IOException {
+        long fileSize = archive.size();
+        int tailLength = (int) Math.min(fileSize, MAX_EOCD_SEARCH);
+        ByteBuffer tail = readFully(archive, fileSize - tailLength, tailLength);
+        long[] location = locate(tail);
+        ByteBuffer cd = readFully(archive, location[0], (int) location[1]);
+        return parse(location[0], cd);
+    }
+
+    /**
+     * Find the central directory from the last bytes of an archive.
+     *
+     * @param tail the end of the archive, at most {@link #MAX_EOCD_SEARCH} bytes
+     * @return the offset and length of the central directory
+     */
+    public static long[] locate(ByteBuffer tail) throws IOException {
+        ByteBuffer buf = tail.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = buf.limit() - EOCD_SIZE; i >= 0; i--) {
+            if (buf.getInt(i) == EOCD_SIGNATURE) {
+                long length = buf.getInt(i + 12) & ZIP64_MAGIC;
+                long offset = buf.getInt(i + 16) & ZIP64_MAGIC;
+                if (length == ZIP64_MAGIC || offset == ZIP64_MAGIC) {
+                    throw new IOException("Zip64 archives are not supported");
+                }
+                return new long[]{offset, length};
+            }
+        }
+        throw new IOException("End of central directory not found");
+    }
+
+    /**
+     * Parse the raw bytes of a central directory that starts at {@code offset} in the archive
+     */
+    public static ZipCentralDirectory parse(long offset, ByteBuffer cd) throws IOException {
+        ByteBuffer buf = cd.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        List<Entry> entries = new ArrayList<>();
+        int pos = 0;
+        while (pos + CEN_SIZE <= buf.limit()) {
+            if (buf.getInt(pos) != CEN_SIGNATURE) {
+                throw new IOException("Invalid central directory header at " + (offset + pos));
+            }
+            int method = buf.getShort(pos + 10) & 0xFFFF;
+            long crc = buf.getInt(pos + 16) & ZIP64_MAGIC;
+            long compressed = buf.getInt(pos + 20) & ZIP64_MAGIC;
+            long size = buf.getInt(pos + 24) & ZIP64_MAGIC;
+            int nameLength = buf.getShort(pos + 28) & 0xFFFF;
+            int extraLength = buf.getShort(pos + 30) & 0xFFFF;
+            int commentLength = buf.getShort(pos + 32) & 0xFFFF;
+            long localOffset = buf.getInt(pos + 42) & ZIP64_MAGIC;
+            if (compressed == ZIP64_MAGIC || size == ZIP64_MAGIC || localOffset == ZIP64_MAGIC) {
+                throw new IOException("Zip64 archives are not supported");
+            }
+            byte[] name = new byte[nameLength];
+            ByteBuffer nameBuf = buf.duplicate();
+            nameBuf.position(pos + CEN_SIZE);
+            nameBuf.get(name);
+            entries.add(new Entry(new String(name, StandardCharsets.UTF_8), method, crc, compressed, size, localOffset));
+            pos += CEN_SIZE + nameLength + extraLength + commentLength;
+        }
+        return new ZipCentralDirectory(offset, buf.limit(), entries);
+    }
+
+    /**
+     * Get the distance from the start of a local file header to the entry data
+     *
+     * @param localHeader at least the first {@link #LOC_SIZE} bytes of the local header
+     */
+    public static int getDataStart(ByteBuffer localHeader) throws IOException {
+        ByteBuffer buf = localHeader.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (buf.limit() < LOC_SIZE || buf.getInt(0) != LOC_SIGNATURE) {
+            throw new IOException("Invalid local file header");
+        }
+        int nameLength = buf.getShort(26) & 0xFFFF;
+        int extraLength = buf.getShort(28) & 0xFFFF;
+        return LOC_SIZE + nameLength + extraLength;
+    }
+
+    /**
+     * Get the position in the archive of the first byte of an entry's data
+     */
+    public static long getDataOffset(FileChannel archive, Entry entry) throws IOException {
+        ByteBuffer header = readFully(archive, entry.getLocalHeaderOffset(), LOC_SIZE);
+        return entry.getLocalHeaderOffset() + getDataStart(header);
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(length);
+        while (buf.hasRemaining()) {
+            int read = channel.read(buf, position + buf.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of archive");
+            }
+        }
+        buf.flip();
+        return buf;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+    public long getLength() {
+        return length;
+    }
+    public List<Entry> getEntries() {
+        return entries;
+    }
+    public Entry getEntry(String name) {
+        return byName.get(name);
+    }
+}
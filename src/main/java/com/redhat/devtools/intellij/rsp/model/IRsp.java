@@ -32,6 +32,26 @@ public interface IRsp {
      */
     public String getLatestVersion();
 
+    /**
+     * Update the latest version when newer information becomes available
+     * @param version
+     * @param downloadUrl
+     */
+    public void setLatestVersion(String version, String downloadUrl);
+
+    /**
+     * Get the url of the distribution of the latest version, or null if not known
+     * @return
+     */
+    public String getLatestDownloadUrl();
+
+    /**
+     * Get the latest version together with the url of its distribution,
+     * or null if not known
+     * @return
+     */
+    public RspRelease getLatestRelease();
+
     /**
      * Get the currently-installed version of this rsp, or null if not found
      * @return
@@ -45,10 +65,32 @@ public interface IRsp {
     public ServerConnectionInfo start();
 
     /**
-     * Stop the RSP
+     * Connect to this rsp while another client runs it, without becoming
+     * one of its users. Other clients may still stop it.
+     * @return The connection information (host/port) for the running instance or null
+     */
+    public ServerConnectionInfo connect();
+
+    /**
+     * Become one of the users of this running rsp, so other clients
+     * no longer stop it while it is used here
+     */
+    public void acquire();
+
+    /**
+     * Stop the RSP, using the deadlines from the settings
      */
     public void stop();
 
+    /**
+     * Ask the RSP to shut down, terminate it if it did not exit within the
+     * shutdown timeout and kill it if it did not exit within the terminate timeout.
+     * Blocks until the RSP is stopped.
+     * @param shutdownTimeout in milliseconds
+     * @param terminateTimeout in milliseconds
+     */
+    public void stop(long shutdownTimeout, long terminateTimeout);
+
     /**
      * Forcefully terminate the RSP process
      */
@@ -60,6 +102,12 @@ public interface IRsp {
      */
     IRspCore.IJServerState getState();
 
+    /**
+     * Get the measurements of the last start of the RSP process, or null if it was not started
+     * @return
+     */
+    RspLaunchInfo getLaunchInfo();
+
     /**
      * Return whether the RSP exists at the expected location or not
      * @return
@@ -67,7 +115,21 @@ public interface IRsp {
     boolean exists();
 
     /**
-     * Download the latest version of this RSP
+     * Download the latest version of this RSP.
+     * The new version is installed next to the current one and only
+     * replaces it once the installation is complete.
      */
     void download();
+
+    /**
+     * Return whether a previously installed version is available to switch back to.
+     * This is known from the last change of the installations and does not read the disk.
+     * @return
+     */
+    boolean canRollback();
+
+    /**
+     * Make the previously installed version the active one again
+     */
+    void rollback();
 }
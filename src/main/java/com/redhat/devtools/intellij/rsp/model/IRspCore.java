@@ -55,8 +55,36 @@ public interface IRspCore {
         STARTED
     }
 
-    public void startServer(IRsp server);
+    /**
+     * Start the RSP and connect a client to it.
+     * Callers asking while a start is in progress share that start.
+     * @param server
+     * @return a future of the connected client, completing with null if the RSP could not be started or connected
+     */
+    public CompletableFuture<IntelliJRspClientLauncher> startServer(IRsp server);
     public void stopServer(IRsp server);
+
+    /**
+     * Get the round trip times of the pings to a connected RSP
+     * @param rsp
+     * @return the histogram, or null if the RSP is not connected
+     */
+    public LatencyHistogram getLatency(IRsp rsp);
+
+    /**
+     * Get the resource use of the RSP process at the last sample
+     * @param rsp
+     * @return the resource use, or null if it is not known
+     */
+    public ProcessTelemetry getTelemetry(IRsp rsp);
+
+    /**
+     * Get the resource use of a server process and its children at the last sample
+     * @param rsp
+     * @param serverId
+     * @return the resource use, or null if it is not known
+     */
+    public ProcessTelemetry getTelemetry(IRsp rsp, String serverId);
     public void stateUpdated(RspImpl rspServer);
 
     /**
@@ -123,4 +151,18 @@ public interface IRspCore {
      * @return
      */
     public IntelliJRspClientLauncher getClient(IRsp rsp);
+
+    /**
+     * Get a client for the RSP, starting the RSP first if it is not running
+     * @param rsp
+     * @return a future of the connected client, completing with null if the RSP could not be started or connected
+     */
+    public CompletableFuture<IntelliJRspClientLauncher> getClientAsync(IRsp rsp);
+
+    /**
+     * Whether the RSP was stopped because it was idle, and is started again when needed
+     * @param rsp
+     * @return
+     */
+    public boolean isStoppedWhileIdle(IRsp rsp);
 }
@@ -15,4 +15,9 @@ package com.redhat.devtools.intellij.rsp.model;
  */
 public interface IRspStartCallback {
     public void updateRspState(IRspCore.IJServerState state);
+
+    /**
+     * Report the measurements of a successful start, before the state changes to started
+     */
+    public void setLaunchInfo(RspLaunchInfo info);
 }
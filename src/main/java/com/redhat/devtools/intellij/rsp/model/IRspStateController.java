@@ -21,10 +21,44 @@ public interface IRspStateController {
      */
     public ServerConnectionInfo start(IRspStartCallback callback) throws StartupFailedException;
 
+    /**
+     * Connect to the rsp another client already runs, without becoming one of
+     * its users, and alert the callback to changes in the state
+     * @param callback
+     * @return the connection information, or null if the rsp is not running
+     */
+    public ServerConnectionInfo connect(IRspStartCallback callback);
+
+    /**
+     * Become one of the users of the running rsp, if not one already
+     */
+    public void acquire();
+
     /**
      * Terminate the rsp and alert the callback to changes in the state
      * @param callback
      */
     public void terminate(IRspStartCallback callback);
 
+    /**
+     * Terminate the rsp, and kill it if it did not exit within the timeout,
+     * then alert the callback to changes in the state
+     * @param callback
+     * @param timeout in milliseconds
+     */
+    public void terminate(IRspStartCallback callback, long timeout);
+
+    /**
+     * Wait for the rsp process to exit
+     * @param timeout in milliseconds
+     * @return true if no rsp process is running anymore
+     */
+    public boolean waitForExit(long timeout);
+
+    /**
+     * Stop using the rsp, it may be shared with other IDEs
+     * @return true if no other IDE uses the rsp and it should be stopped
+     */
+    public boolean release();
+
 }
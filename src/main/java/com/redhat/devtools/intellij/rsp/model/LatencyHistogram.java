@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package com.redhat.devtools.intellij.rsp.model;
+
+/**
+ * Round trip times of the pings to an RSP, counted in fixed buckets.
+ * Percentiles are reported as the upper bound of the bucket they fall in.
+ */
+public class LatencyHistogram {
+    private static final long[] BOUNDS = {1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000};
+
+    // The last bucket counts everything above the last bound
+    private final long[] counts = new long[BOUNDS.length + 1];
+    private long total;
+    private long last = -1;
+    private boolean responding = true;
+
+    public synchronized void record(long millis) {
+        int i = getBucket(millis);
+        counts[i]++;
+        total++;
+        last = millis;
+        responding = true;
+    }
+
+    public synchronized void setResponding(boolean responding) {
+        this.responding = responding;
+    }
+
+    public synchronized boolean isResponding() {
+        return responding;
+    }
+
+    public synchronized long getCount() {
+        return total;
+    }
+
+    /**
+     * Get the last round trip time in milliseconds, or -1 if there was none yet
+     */
+    public synchronized long getLast() {
+        return last;
+    }
+
+    /**
+     * Get the bucket bound the last round trip time falls in,
+     * or -1 if there was none yet
+     */
+    public synchronized long getLastBucket() {
+        if( last < 0 )
+            return -1;
+        int i = getBucket(last);
+        return i < BOUNDS.length ? BOUNDS[i] : Long.MAX_VALUE;
+    }
+
+    /**
+     * Get the bucket bound below which the given fraction of round trips fall,
+     * or -1 if there were none yet
+     * @param fraction between 0 and 1, for example 0.95
+     */
+    public synchronized long getPercentile(double fraction) {
+        if( total == 0 )
+            return -1;
+        long wanted = (long)Math.ceil(total * fraction);
+        long seen = 0;
+        for( int i = 0; i < counts.length; i++ ) {
+            seen += counts[i];
+            if( seen >= wanted )
+                return i < BOUNDS.length ? BOUNDS[i] : Long.MAX_VALUE;
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * The label shows buckets only, so it changes when a bucket does, not with every ping
+     */
+    @Override
+    public synchronized String toString() {
+        if( !responding )
+            return "not responding";
+        if( total == 0 )
+            return "no ping yet";
+        return "ping " + format(getLastBucket()) + " ms, p95 " + format(getPercentile(0.95)) + " ms";
+    }
+
+    private static int getBucket(long millis) {
+        int i = 0;
+        while( i < BOUNDS.length && millis > BOUNDS[i])
+            i++;
+        return i;
+    }
+
+    private static String format(long bound) {
+        return bound == Long.MAX_VALUE ? "> " + BOUNDS[BOUNDS.length - 1] : "<= " + bound;
+    }
+}
@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package com.redhat.devtools.intellij.rsp.model;
+
+/**
+ * The resource use of a process and its child processes at the last sample
+ */
+public class ProcessTelemetry {
+    private final int pid;
+    private final double cpuPercent;
+    private final long rssKb;
+    private final int threads;
+
+    /**
+     * @param pid the process id
+     * @param cpuPercent the cpu use since the previous sample, 100 for one full core, or -1 if unknown
+     * @param rssKb the resident set size
+     * @param threads the number of threads
+     */
+    public ProcessTelemetry(int pid, double cpuPercent, long rssKb, int threads) {
+        this.pid = pid;
+        this.cpuPercent = cpuPercent;
+        this.rssKb = rssKb;
+        this.threads = threads;
+    }
+
+    public int getPid() {
+        return pid;
+    }
+
+    public double getCpuPercent() {
+        return cpuPercent;
+    }
+
+    public long getRssKb() {
+        return rssKb;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        if( cpuPercent >= 0 )
+            sb.append(String.format("%.0f%% CPU, ", cpuPercent));
+        sb.append(rssKb / 1024).append(" MB, ").append(threads).append(" threads");
+        return sb.toString();
+    }
+}
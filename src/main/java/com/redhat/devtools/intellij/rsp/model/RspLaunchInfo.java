@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package com.redhat.devtools.intellij.rsp.model;
+
+/**
+ * Measurements of the last start of an RSP process
+ */
+public class RspLaunchInfo {
+    private final String profile;
+    private final int pid;
+    private final long startMillis;
+    private final long rssKb;
+
+    /**
+     * @param profile the launch profile used
+     * @param pid the process id, or -1 if unknown
+     * @param startMillis the time from launch until the RSP accepted connections
+     * @param rssKb the resident set size once started, or -1 if unknown
+     */
+    public RspLaunchInfo(String profile, int pid, long startMillis, long rssKb) {
+        this.profile = profile;
+        this.pid = pid;
+        this.startMillis = startMillis;
+        this.rssKb = rssKb;
+    }
+
+    public String getProfile() {
+        return profile;
+    }
+
+    public int getPid() {
+        return pid;
+    }
+
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    public long getRssKb() {
+        return rssKb;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(profile).append(", started in ")
+                .append(String.format("%.1f s", startMillis / 1000.0));
+        if( rssKb >= 0 )
+            sb.append(", ").append(rssKb / 1024).append(" MB");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,37 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package com.redhat.devtools.intellij.rsp.model;
+
+/**
+ * A released version of an RSP and the url of its distribution.
+ * Both are published together, so a reader never pairs a version with
+ * the url of another one.
+ */
+public class RspRelease {
+    private final String version;
+    private final String downloadUrl;
+
+    public RspRelease(String version, String downloadUrl) {
+        this.version = version;
+        this.downloadUrl = downloadUrl;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * Get the url of the distribution, or null if not known
+     */
+    public String getDownloadUrl() {
+        return downloadUrl;
+    }
+}
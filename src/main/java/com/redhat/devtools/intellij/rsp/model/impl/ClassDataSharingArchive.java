@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package com.redhat.devtools.intellij.rsp.model.impl;
+
+import com.redhat.devtools.intellij.rsp.util.JavaUtils;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A class data sharing archive of the classes an RSP loads, kept in ~/.rsp/&lt;id&gt;/cds.
+ * The first launch records the archive when the RSP exits, later launches map it
+ * instead of loading and verifying the classes again. This needs a JDK 13 or newer.
+ * The archive name contains the RSP and JDK versions, so a new RSP or JDK
+ * records a new archive. IDEs sharing the folder may run the RSP with
+ * different JDKs, so archives are only deleted once unused for a month.
+ * The JVM writes the archive on a normal exit only: an RSP that was
+ * killed records nothing, and the next launch records again.
+ */
+public class ClassDataSharingArchive {
+    private static final String CDS = "cds";
+    private static final String SUFFIX = ".jsa";
+    private static final int MIN_JAVA_VERSION = 13;
+    private static final long UNUSED_EXPIRY = TimeUnit.DAYS.toMillis(30);
+
+    private final File folder;
+    private final File rspHome;
+    private final File javaHome;
+
+    public ClassDataSharingArchive(String rspId, File rspHome, File java) {
+        File home = new File(JavaUtils.getUserHome());
+        this.folder = new File(new File(new File(home, RspTypeImpl.DATA_LOCATION_DEFAULT), rspId), CDS);
+        this.rspHome = rspHome;
+        this.javaHome = JavaUtils.getJavaHome(java);
+    }
+
+    /**
+     * Get the vm arguments to record or use the archive.
+     * @return the arguments, empty if the JDK cannot record archives
+     */
+    public List<String> getVmArgs() {
+        String javaVersion = JavaUtils.getJavaVersion(javaHome);
+        if( JavaUtils.getMajorVersion(javaVersion) < MIN_JAVA_VERSION )
+            return Collections.emptyList();
+        File archive = new File(folder, getArchiveName(javaVersion));
+        deleteUnusedArchives(archive);
+        if( archive.isFile() && archive.length() > 0 ) {
+            // Marks it as used, so it is not pruned
+            archive.setLastModified(System.currentTimeMillis());
+            return Collections.singletonList("-XX:SharedArchiveFile=" + archive.getAbsolutePath());
+        }
+        if( !folder.isDirectory() && !folder.mkdirs())
+            return Collections.emptyList();
+        return Collections.singletonList("-XX:ArchiveClassesAtExit=" + archive.getAbsolutePath());
+    }
+
+    private String getArchiveName(String javaVersion) {
+        String rspVersion = RspInstallations.readDistributionVersion(rspHome);
+        // The locations tell apart different builds that report the same versions
+        String locations = rspHome.getAbsolutePath() + File.pathSeparator + javaHome.getAbsolutePath();
+        return "rsp-" + sanitize(rspVersion == null ? "unknown" : rspVersion)
+                + "-jdk-" + sanitize(javaVersion)
+                + "-" + Integer.toHexString(locations.hashCode()) + SUFFIX;
+    }
+
+    private void deleteUnusedArchives(File keep) {
+        File[] all = folder.listFiles((dir, name) -> name.endsWith(SUFFIX));
+        if( all == null )
+            return;
+        long now = System.currentTimeMillis();
+        for( File f : all ) {
+            if( !f.equals(keep) && now - f.lastModified() > UNUSED_EXPIRY )
+                f.delete();
+        }
+    }
+
+    private static String sanitize(String s) {
+        return s.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+}
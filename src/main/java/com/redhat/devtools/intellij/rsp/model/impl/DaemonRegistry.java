@@ -0,0 +1,327 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package com.redhat.devtools.intellij.rsp.model.impl;
+
+import com.redhat.devtools.intellij.rsp.util.JavaUtils;
+import com.redhat.devtools.intellij.rsp.util.ReadinessProbe;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * The record of a running RSP daemon, shared by all IDE instances of the user,
+ * in ~/.rsp/&lt;id&gt;/daemon.properties. It holds the pid, port and version of
+ * the daemon, the time it last answered a ping, and every IDE using it with
+ * the time that IDE was last seen. An IDE that has not been seen for a while
+ * is assumed to have crashed and no longer counts as a user.
+ * The file is only changed while holding a file lock, so IDEs never overwrite
+ * each other's changes.
+ */
+public class DaemonRegistry {
+    private static final String FILE = "daemon.properties";
+    private static final String LOCK = "daemon.lock";
+    private static final String KEY_PID = "pid";
+    private static final String KEY_PORT = "port";
+    private static final String KEY_VERSION = "version";
+    private static final String KEY_HEARTBEAT = "heartbeat";
+    private static final String OWNER_PREFIX = "owner.";
+    // IDEs and daemons not heard of for this long are considered gone
+    private static final long OWNER_EXPIRY = 120000;
+    private static final long HEARTBEAT_EXPIRY = 60000;
+
+    // File locks are held by the whole JVM, threads must take turns
+    private static final Object JVM_LOCK = new Object();
+    private static final String SELF = ManagementFactory.getRuntimeMXBean().getName();
+
+    /**
+     * A running daemon
+     */
+    public static class Entry {
+        private final int pid;
+        private final int port;
+        private final String version;
+        private final int owners;
+        private final boolean self;
+
+        private Entry(int pid, int port, String version, int owners, boolean self) {
+            this.pid = pid;
+            this.port = port;
+            this.version = version;
+            this.owners = owners;
+            this.self = self;
+        }
+
+        public int getPid() {
+            return pid;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        public String getVersion() {
+            return version;
+        }
+
+        public int getOwnerCount() {
+            return owners;
+        }
+
+        /**
+         * Whether IDEs other than this one use the daemon
+         */
+        public boolean isUsedByOthers() {
+            return owners > (self ? 1 : 0);
+        }
+    }
+
+    private interface Update<T> {
+        T apply(Properties props);
+    }
+
+    private final File folder;
+
+    public DaemonRegistry(String rspId) {
+        File home = new File(JavaUtils.getUserHome());
+        this.folder = new File(new File(home, RspTypeImpl.DATA_LOCATION_DEFAULT), rspId);
+    }
+
+    /**
+     * Record a daemon this IDE just started, with this IDE as one of its users.
+     * IDEs that joined it through its lock file before it was registered stay users.
+     */
+    public void register(int pid, int port, String version) {
+        update(props -> {
+            long now = System.currentTimeMillis();
+            pruneOwners(props, now);
+            Properties owners = new Properties();
+            if( getInt(props, KEY_PORT) == port ) {
+                for( String owner : getOwners(props))
+                    owners.setProperty(owner, props.getProperty(owner));
+            }
+            props.clear();
+            props.putAll(owners);
+            props.setProperty(KEY_PID, Integer.toString(pid));
+            props.setProperty(KEY_PORT, Integer.toString(port));
+            if( version != null )
+                props.setProperty(KEY_VERSION, version);
+            props.setProperty(KEY_HEARTBEAT, Long.toString(now));
+            props.setProperty(OWNER_PREFIX + SELF, Long.toString(now));
+            return null;
+        });
+    }
+
+    /**
+     * Add this IDE to the users of a daemon found through its lock file only.
+     * It was started by a client that does not register it, or is not registered yet.
+     */
+    public void join(int port) {
+        update(props -> {
+            if( getInt(props, KEY_PORT) != port ) {
+                props.clear();
+                props.setProperty(KEY_PORT, Integer.toString(port));
+            }
+            long now = System.currentTimeMillis();
+            props.setProperty(OWNER_PREFIX + SELF, Long.toString(now));
+            pruneOwners(props, now);
+            return null;
+        });
+    }
+
+    /**
+     * Join a running daemon, adding this IDE to its users.
+     * A record of a daemon that is gone is removed.
+     * @return the daemon, or null if none is running
+     */
+    public Entry acquire() {
+        return update(props -> {
+            if( props.isEmpty())
+                return null;
+            int port = getInt(props, KEY_PORT);
+            if( !isAlive(props, port)) {
+                props.clear();
+                return null;
+            }
+            long now = System.currentTimeMillis();
+            props.setProperty(OWNER_PREFIX + SELF, Long.toString(now));
+            pruneOwners(props, now);
+            return toEntry(props);
+        });
+    }
+
+    /**
+     * Look up the running daemon without becoming one of its users.
+     * A record of a daemon that is gone is removed.
+     * @return the daemon, or null if none is running
+     */
+    public Entry find() {
+        return update(props -> {
+            if( props.isEmpty())
+                return null;
+            if( !isAlive(props, getInt(props, KEY_PORT))) {
+                props.clear();
+                return null;
+            }
+            return toEntry(props);
+        });
+    }
+
+    /**
+     * Remove this IDE from the users of the daemon. Only a daemon an IDE
+     * launched and registered is ever stopped, not one another client runs.
+     * @return true if the daemon was registered and nobody else uses it, so it should be stopped,
+     * or null if the registry could not be accessed
+     */
+    public Boolean release() {
+        return update(props -> {
+            props.remove(OWNER_PREFIX + SELF);
+            pruneOwners(props, System.currentTimeMillis());
+            return getInt(props, KEY_PID) > 0 && getOwners(props).isEmpty();
+        });
+    }
+
+    /**
+     * Record that the daemon answered a ping from this IDE. This IDE is only
+     * kept as a user if it is one, following a daemon does not make it a user.
+     */
+    public void touch() {
+        update(props -> {
+            if( props.isEmpty())
+                return null;
+            long now = System.currentTimeMillis();
+            props.setProperty(KEY_HEARTBEAT, Long.toString(now));
+            if( props.containsKey(OWNER_PREFIX + SELF))
+                props.setProperty(OWNER_PREFIX + SELF, Long.toString(now));
+            return null;
+        });
+    }
+
+    /**
+     * Forget the daemon with the given pid, once it exited
+     */
+    public void remove(int pid) {
+        update(props -> {
+            if( getInt(props, KEY_PID) == pid )
+                props.clear();
+            return null;
+        });
+    }
+
+    private static boolean isAlive(Properties props, int port) {
+        if( port <= 0 )
+            return false;
+        int pid = getInt(props, KEY_PID);
+        // Only Linux can tell whether a pid is alive without extra APIs
+        if( pid > 0 && new File("/proc").isDirectory() && !new File("/proc/" + pid).exists())
+            return false;
+        long heartbeat = getLong(props, KEY_HEARTBEAT);
+        if( System.currentTimeMillis() - heartbeat < HEARTBEAT_EXPIRY )
+            return true;
+        // Not heard of in a while, but a daemon whose users all crashed is still usable
+        return ReadinessProbe.isAcceptingConnections("localhost", port);
+    }
+
+    private static void pruneOwners(Properties props, long now) {
+        for( String owner : getOwners(props)) {
+            if( now - getLong(props, owner) > OWNER_EXPIRY )
+                props.remove(owner);
+        }
+    }
+
+    private static List<String> getOwners(Properties props) {
+        List<String> ret = new ArrayList<>();
+        for( String key : props.stringPropertyNames()) {
+            if( key.startsWith(OWNER_PREFIX))
+                ret.add(key);
+        }
+        return ret;
+    }
+
+    private static Entry toEntry(Properties props) {
+        return new Entry(getInt(props, KEY_PID), getInt(props, KEY_PORT),
+                props.getProperty(KEY_VERSION), getOwners(props).size(), props.containsKey(OWNER_PREFIX + SELF));
+    }
+
+    private static int getInt(Properties props, String key) {
+        return (int)getLong(props, key);
+    }
+
+    private static long getLong(Properties props, String key) {
+        String s = props.getProperty(key);
+        if( s == null )
+            return -1;
+        try {
+            return Long.parseLong(s.trim());
+        } catch(NumberFormatException nfe) {
+            return -1;
+        }
+    }
+
+    /*
+     * Read, change and write the registry file while holding the lock.
+     * Returns null if the registry could not be accessed.
+     */
+    private <T> T update(Update<T> update) {
+        synchronized(JVM_LOCK) {
+            try {
+                Files.createDirectories(folder.toPath());
+                try (FileChannel channel = FileChannel.open(new File(folder, LOCK).toPath(),
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                     FileLock lock = channel.lock()) {
+                    Path file = new File(folder, FILE).toPath();
+                    Properties props = new Properties();
+                    if( Files.isRegularFile(file)) {
+                        try (InputStream in = Files.newInputStream(file)) {
+                            props.load(in);
+                        }
+                    }
+                    Properties before = new Properties();
+                    before.putAll(props);
+                    T ret = update.apply(props);
+                    if( !props.equals(before))
+                        write(file, props);
+                    return ret;
+                }
+            } catch(IOException ioe) {
+                return null;
+            }
+        }
+    }
+
+    private static void write(Path file, Properties props) throws IOException {
+        if( props.isEmpty()) {
+            Files.deleteIfExists(file);
+            return;
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            props.store(out, null);
+        }
+        try {
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package com.redhat.devtools.intellij.rsp.model.impl;
+
+import com.intellij.notification.Notification;
+import com.intellij.notification.NotificationAction;
+import com.intellij.notification.NotificationType;
+import com.intellij.notification.Notifications;
+import com.redhat.devtools.intellij.rsp.client.IntelliJRspClientLauncher;
+import com.redhat.devtools.intellij.rsp.editor.EditServerListener;
+import com.redhat.devtools.intellij.rsp.model.IRsp;
+import com.redhat.devtools.intellij.rsp.model.LatencyHistogram;
+import com.redhat.devtools.intellij.rsp.settings.RspSettings;
+import org.jboss.tools.rsp.api.RSPServer;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pings every connected RSP at a fixed interval with a cheap request
+ * and records the round trip times. An RSP that leaves a ping unanswered
+ * for too long is reported as not responding, and restarted if the
+ * settings ask for it. An RSP other IDEs use is never restarted, it can
+ * only be disconnected from.
+ */
+public class HeartbeatMonitor {
+    private static final long INTERVAL = 5000;
+    private static final long UNRESPONSIVE_THRESHOLD = 30000;
+    // How often a healthy RSP is marked alive in the shared daemon registry
+    private static final long REGISTRY_INTERVAL = 30000;
+
+    private final RspCore core;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "RSP Heartbeat");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Map<String, Heartbeat> heartbeats = new ConcurrentHashMap<>();
+
+    public HeartbeatMonitor(RspCore core) {
+        this.core = core;
+    }
+
+    /**
+     * Start pinging an RSP over a new connection, replacing any earlier heartbeat
+     */
+    public void start(IRsp rsp, IntelliJRspClientLauncher launcher) {
+        Heartbeat hb = new Heartbeat(rsp, launcher);
+        Heartbeat old = heartbeats.put(rsp.getRspType().getId(), hb);
+        if( old != null )
+            old.cancel();
+        hb.future = executor.scheduleWithFixedDelay(hb::tick, 0, INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop(IRsp rsp) {
+        Heartbeat hb = heartbeats.remove(rsp.getRspType().getId());
+        if( hb != null )
+            hb.cancel();
+    }
+
+    /**
+     * Get the round trip times of the current connection, or null if the RSP is not connected
+     */
+    public LatencyHistogram getLatency(IRsp rsp) {
+        Heartbeat hb = heartbeats.get(rsp.getRspType().getId());
+        return hb == null ? null : hb.histogram;
+    }
+
+    private void unresponsive(IRsp rsp) {
+        String name = rsp.getRspType().getName();
+        if( !isRestartable(rsp)) {
+            // Restarting would kill an RSP other IDEs use, or reconnect to the same hung one
+            Notification notification = new Notification(EditServerListener.NOTIFICATION_ID, "RSP not responding",
+                    name + " did not respond for " + (UNRESPONSIVE_THRESHOLD / 1000)
+                            + " seconds. It is shared and cannot be restarted from this IDE.",
+                    NotificationType.WARNING);
+            notification.addAction(NotificationAction.createSimple("Disconnect " + name, () -> {
+                notification.expire();
+                disconnect(rsp);
+            }));
+            Notifications.Bus.notify(notification);
+            return;
+        }
+        RspSettings settings = RspSettings.getInstance();
+        if( settings != null && settings.isRestartUnresponsive()) {
+            Notifications.Bus.notify(new Notification(EditServerListener.NOTIFICATION_ID, "RSP not responding",
+                    name + " did not respond for " + (UNRESPONSIVE_THRESHOLD / 1000) + " seconds and is being restarted.",
+                    NotificationType.WARNING));
+            restart(rsp);
+            return;
+        }
+        Notification notification = new Notification(EditServerListener.NOTIFICATION_ID, "RSP not responding",
+                name + " did not respond for " + (UNRESPONSIVE_THRESHOLD / 1000) + " seconds.",
+                NotificationType.WARNING);
+        notification.addAction(NotificationAction.createSimple("Restart " + name, () -> {
+            notification.expire();
+            restart(rsp);
+        }));
+        Notifications.Bus.notify(notification);
+    }
+
+    /**
+     * Whether stopping the RSP ends its process: this IDE is its last user
+     * and it is either registered with its pid or not recorded at all
+     */
+    private static boolean isRestartable(IRsp rsp) {
+        DaemonRegistry.Entry entry = new DaemonRegistry(rsp.getRspType().getId()).find();
+        return entry == null || (entry.getPid() > 0 && !entry.isUsedByOthers());
+    }
+
+    private void restart(IRsp rsp) {
+        stop(rsp);
+        new Thread("Restart RSP Server: " + rsp.getRspType().getId()) {
+            public void run() {
+                // Released first, so the process is stopped by its pid even if another IDE launched it
+                rsp.stop();
+                core.startServer(rsp);
+            }
+        }.start();
+    }
+
+    private void disconnect(IRsp rsp) {
+        stop(rsp);
+        new Thread("Disconnect RSP Server: " + rsp.getRspType().getId()) {
+            public void run() {
+                // Other IDEs still use it, so this only closes the connection
+                rsp.stop();
+            }
+        }.start();
+    }
+
+    private class Heartbeat {
+        private final IRsp rsp;
+        private final IntelliJRspClientLauncher launcher;
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private final DaemonRegistry registry;
+        private volatile long lastAnswer;
+        private long lastRegistryUpdate;
+        private volatile ScheduledFuture<?> future;
+        private CompletableFuture<?> inFlight;
+        private long sent;
+        private boolean reported;
+
+        Heartbeat(IRsp rsp, IntelliJRspClientLauncher launcher) {
+            this.rsp = rsp;
+            this.launcher = launcher;
+            this.registry = new DaemonRegistry(rsp.getRspType().getId());
+        }
+
+        // Always called on the heartbeat thread
+        void tick() {
+            long answered = lastAnswer;
+            if( answered - lastRegistryUpdate > REGISTRY_INTERVAL ) {
+                lastRegistryUpdate = answered;
+                registry.touch();
+            }
+            if( inFlight != null && !inFlight.isDone()) {
+                // Never more than one ping outstanding
+                if( !reported && System.currentTimeMillis() - sent > UNRESPONSIVE_THRESHOLD ) {
+                    reported = true;
+                    histogram.setResponding(false);
+                    core.modelUpdated(rsp);
+                    unresponsive(rsp);
+                }
+                return;
+            }
+            RSPServer proxy = launcher.getServerProxy();
+            if( proxy == null )
+                return;
+            sent = System.currentTimeMillis();
+            long start = System.nanoTime();
+            inFlight = proxy.getJobs().whenComplete((jobs, t) -> {
+                if( t != null )
+                    return;
+                lastAnswer = System.currentTimeMillis();
+                String before = histogram.toString();
+                histogram.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                // Refresh the tree only when the responding state or a bucket changes
+                if( !before.equals(histogram.toString()))
+                    core.modelUpdated(rsp);
+            });
+            reported = false;
+        }
+
+        void cancel() {
+            ScheduledFuture<?> f = future;
+            if( f != null )
+                f.cancel(false);
+        }
+    }
+}
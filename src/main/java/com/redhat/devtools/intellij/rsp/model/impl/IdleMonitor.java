@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package com.redhat.devtools.intellij.rsp.model.impl;
+
+import com.redhat.devtools.intellij.rsp.client.IntelliJRspClientLauncher;
+import com.redhat.devtools.intellij.rsp.model.IRsp;
+import com.redhat.devtools.intellij.rsp.model.IRspCore;
+import com.redhat.devtools.intellij.rsp.settings.RspSettings;
+import org.jboss.tools.rsp.api.ServerManagementAPIConstants;
+import org.jboss.tools.rsp.api.dao.ServerState;
+import org.jboss.tools.rsp.api.dao.StopServerAttributes;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stops RSPs that have been idle for the period set in the settings, to give
+ * their memory back. An RSP is idle when none of its servers runs, no job runs
+ * and nothing used its client. If the settings ask for it, servers that have
+ * not been published to for that period are stopped too.
+ * An RSP stopped this way is started again by the next action that needs its client.
+ */
+public class IdleMonitor {
+    private static final long INTERVAL = 60000;
+
+    private final RspCore core;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "RSP Idle Monitor");
+        t.setDaemon(true);
+        return t;
+    });
+    // Last activity by RSP id, and by RSP id and server id for the servers
+    private final Map<String, Long> rspActivity = new ConcurrentHashMap<>();
+    private final Map<String, Long> serverActivity = new ConcurrentHashMap<>();
+    private final Map<String, Integer> publishStates = new ConcurrentHashMap<>();
+    private final Set<String> stoppedWhileIdle = ConcurrentHashMap.newKeySet();
+
+    public IdleMonitor(RspCore core) {
+        this.core = core;
+    }
+
+    public void start() {
+        executor.scheduleWithFixedDelay(this::check, INTERVAL, INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Something happened in the RSP or its client was used
+     */
+    public void markActive(IRsp rsp) {
+        rspActivity.put(rsp.getRspType().getId(), System.currentTimeMillis());
+    }
+
+    /**
+     * A server changed state. A change of its publish state counts as a publish.
+     */
+    public void serverChanged(IRsp rsp, ServerState state) {
+        markActive(rsp);
+        String key = getKey(rsp, state);
+        Integer old = publishStates.put(key, state.getPublishState());
+        if( old == null || old != state.getPublishState() || state.getState() != ServerManagementAPIConstants.STATE_STARTED )
+            serverActivity.put(key, System.currentTimeMillis());
+    }
+
+    /**
+     * Whether the RSP was stopped by this monitor and not started since
+     */
+    public boolean isStoppedWhileIdle(IRsp rsp) {
+        return stoppedWhileIdle.contains(rsp.getRspType().getId());
+    }
+
+    public void stateUpdated(IRsp rsp) {
+        String id = rsp.getRspType().getId();
+        IRspCore.IJServerState state = rsp.getState();
+        if( state == IRspCore.IJServerState.STARTING || state == IRspCore.IJServerState.STARTED ) {
+            stoppedWhileIdle.remove(id);
+            markActive(rsp);
+        } else if( state == IRspCore.IJServerState.STOPPED ) {
+            String prefix = id + ":";
+            serverActivity.keySet().removeIf(k -> k.startsWith(prefix));
+            publishStates.keySet().removeIf(k -> k.startsWith(prefix));
+        }
+    }
+
+    private void check() {
+        RspSettings settings = RspSettings.getInstance();
+        if( settings == null || settings.getIdleTimeout() <= 0 )
+            return;
+        long idleTime = TimeUnit.MINUTES.toMillis(settings.getIdleTimeout());
+        long now = System.currentTimeMillis();
+        for( IRsp rsp : core.getRSPs()) {
+            if( rsp.getState() != IRspCore.IJServerState.STARTED )
+                continue;
+            if( settings.isStopIdleServers())
+                stopIdleServers(rsp, now - idleTime);
+            if( isIdle(rsp, now - idleTime))
+                stop(rsp);
+        }
+    }
+
+    private boolean isIdle(IRsp rsp, long since) {
+        Long last = rspActivity.get(rsp.getRspType().getId());
+        if( last == null || last > since || core.getJobs(rsp).length > 0 )
+            return false;
+        for( ServerState ss : core.getServersInRsp(rsp)) {
+            if( ss.getState() != ServerManagementAPIConstants.STATE_STOPPED )
+                return false;
+        }
+        return true;
+    }
+
+    private void stopIdleServers(IRsp rsp, long since) {
+        IntelliJRspClientLauncher client = core.findClient(rsp);
+        if( client == null || client.getServerProxy() == null )
+            return;
+        for( ServerState ss : core.getServersInRsp(rsp)) {
+            // Servers already running when this IDE connected are idle from then on
+            Long last = serverActivity.putIfAbsent(getKey(rsp, ss), System.currentTimeMillis());
+            if( ss.getState() == ServerManagementAPIConstants.STATE_STARTED && last != null && last <= since ) {
+                // Stopping changes the state, so the server is not asked twice
+                serverActivity.put(getKey(rsp, ss), System.currentTimeMillis());
+                client.getServerProxy().stopServerAsync(new StopServerAttributes(ss.getServer().getId(), false));
+            }
+        }
+    }
+
+    private void stop(IRsp rsp) {
+        stoppedWhileIdle.add(rsp.getRspType().getId());
+        core.modelUpdated(rsp);
+        rsp.stop();
+    }
+
+    private static String getKey(IRsp rsp, ServerState state) {
+        return rsp.getRspType().getId() + ":" + state.getServer().getId();
+    }
+}
@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package com.redhat.devtools.intellij.rsp.model.impl;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Named sets of vm arguments for the RSP process.
+ * All flags are understood by java 8 and newer.
+ */
+public enum LaunchProfile {
+    /**
+     * The JVM defaults
+     */
+    DEFAULT("default", Collections.emptyList()),
+    /**
+     * A small heap and no optimizing compiler, for small laptops
+     */
+    LOW_MEMORY("low-memory", Arrays.asList(
+            "-Xms32m", "-Xmx256m", "-Xss512k",
+            "-XX:+UseSerialGC",
+            "-XX:TieredStopAtLevel=1",
+            "-XX:ReservedCodeCacheSize=64m")),
+    /**
+     * Compile with C1 only, skip GC ergonomics and do not map the perf data
+     * file, so the RSP gets to listening sooner. jps and jstat do not see it then.
+     * Also records and uses a class data sharing archive of the RSP classes
+     * where the JDK supports it, JDK 13 or newer.
+     */
+    FAST_START("fast-start", Arrays.asList(
+            "-XX:TieredStopAtLevel=1",
+            "-XX:+UseSerialGC",
+            "-XX:-UsePerfData")),
+    /**
+     * A large heap and a parallel collector, for big workstations running many servers
+     */
+    THROUGHPUT("throughput", Arrays.asList(
+            "-Xms256m", "-Xmx2g",
+            "-XX:+UseParallelGC"));
+
+    private final String id;
+    private final List<String> vmArgs;
+
+    LaunchProfile(String id, List<String> vmArgs) {
+        this.id = id;
+        this.vmArgs = vmArgs;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public List<String> getVmArgs() {
+        return vmArgs;
+    }
+
+    @Override
+    public String toString() {
+        return id;
+    }
+
+    /**
+     * Find the profile with the given id, or DEFAULT if there is none
+     */
+    public static LaunchProfile fromId(String id) {
+        for( LaunchProfile p : values()) {
+            if( p.id.equals(id))
+                return p;
+        }
+        return DEFAULT;
+    }
+}
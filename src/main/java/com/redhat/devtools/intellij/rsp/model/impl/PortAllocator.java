@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package com.redhat.devtools.intellij.rsp.model.impl;
+
+import com.redhat.devtools.intellij.rsp.util.PortFinder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Hands out ports for RSPs to listen on.
+ * The port an RSP last started on is tried first, so a restart usually
+ * costs a single probe. A port stays reserved from the moment it is handed
+ * out until the RSP has bound it or failed to start, so two RSPs started
+ * together never get the same one. Ports found busy are skipped for a while.
+ */
+public class PortAllocator {
+    private static final String PORTS_FILE = "ports.properties";
+    // A busy port is probed again once this much time has passed since it was found busy
+    private static final long BUSY_EXPIRY = 30000;
+
+    private static PortAllocator instance = new PortAllocator();
+    public static PortAllocator getDefault() {
+        return instance;
+    }
+
+    private final Properties lastGood = new Properties();
+    private final Set<Integer> reserved = new HashSet<>();
+    // Port to the time it was found busy
+    private final Map<Integer, Long> busy = new HashMap<>();
+
+    private PortAllocator() {
+        File f = getPortsFile();
+        if( f.isFile()) {
+            try (InputStream in = Files.newInputStream(f.toPath())) {
+                lastGood.load(in);
+            } catch(IOException ioe) {
+                // Start without affinity
+            }
+        }
+    }
+
+    /**
+     * Reserve a free port in a range, preferring the last port the RSP used.
+     * The reservation must be ended with {@link #release(int)}.
+     *
+     * @return the port, or -1 if no free port was found
+     */
+    public synchronized int reserve(String rspId, int from, int to) {
+        expireBusy();
+        int preferred = getLastGood(rspId);
+        if( preferred >= from && preferred < to && tryReserve(preferred))
+            return preferred;
+        for( int port = from; port < to; port++ ) {
+            if( tryReserve(port))
+                return port;
+        }
+        return -1;
+    }
+
+    /**
+     * End a reservation, once the RSP is listening on the port or failed to start
+     */
+    public synchronized void release(int port) {
+        reserved.remove(port);
+    }
+
+    /**
+     * Remember a port the RSP started on successfully
+     */
+    public synchronized void succeeded(String rspId, int port) {
+        if( getLastGood(rspId) == port )
+            return;
+        lastGood.setProperty(rspId, Integer.toString(port));
+        Path file = getPortsFile().toPath();
+        Path tmp = null;
+        try {
+            Files.createDirectories(file.getParent());
+            // Replaced in one step, so another IDE never reads it half written
+            tmp = Files.createTempFile(file.getParent(), PORTS_FILE, ".tmp");
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                lastGood.store(out, null);
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch(IOException ioe) {
+            // Only affects the next start
+            if( tmp != null )
+                tmp.toFile().delete();
+        }
+    }
+
+    private boolean tryReserve(int port) {
+        if( reserved.contains(port) || busy.containsKey(port))
+            return false;
+        if( !PortFinder.isLocalPortFree(port)) {
+            busy.put(port, System.currentTimeMillis());
+            return false;
+        }
+        reserved.add(port);
+        return true;
+    }
+
+    private void expireBusy() {
+        long now = System.currentTimeMillis();
+        busy.values().removeIf(since -> now - since > BUSY_EXPIRY);
+    }
+
+    private int getLastGood(String rspId) {
+        String s = lastGood.getProperty(rspId);
+        if( s == null )
+            return -1;
+        try {
+            return Integer.parseInt(s.trim());
+        } catch(NumberFormatException nfe) {
+            return -1;
+        }
+    }
+
+    private static File getPortsFile() {
+        File home = new File(System.getProperty(RspTypeImpl.SYSPROP_USER_HOME));
+        File root = new File(home, RspTypeImpl.DATA_LOCATION_DEFAULT);
+        File installs = new File(root, RspTypeImpl.INSTALLATIONS);
+        return new File(installs, PORTS_FILE);
+    }
+}
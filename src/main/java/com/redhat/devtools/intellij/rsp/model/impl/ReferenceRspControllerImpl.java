@@ -10,36 +10,61 @@
  ******************************************************************************/
 package com.redhat.devtools.intellij.rsp.model.impl;
 
-import com.intellij.openapi.project.Project;
-import com.intellij.openapi.project.ProjectManager;
-import com.pty4j.PtyProcess;
-import com.pty4j.PtyProcessBuilder;
-import com.redhat.devtools.intellij.common.utils.ExecHelper;
+import com.intellij.notification.Notification;
+import com.intellij.notification.NotificationType;
+import com.intellij.notification.Notifications;
+import com.intellij.util.execution.ParametersListUtil;
+import com.redhat.devtools.intellij.rsp.editor.EditServerListener;
 import com.redhat.devtools.intellij.rsp.model.*;
+import com.redhat.devtools.intellij.rsp.settings.RspSettings;
 import com.redhat.devtools.intellij.rsp.util.JavaUtils;
+import com.redhat.devtools.intellij.rsp.util.JdkDiscovery;
 import com.redhat.devtools.intellij.rsp.util.PortFinder;
+import com.redhat.devtools.intellij.rsp.util.ProcessStats;
 import com.redhat.devtools.intellij.rsp.util.ProcessMonitorThread;
+import com.redhat.devtools.intellij.rsp.util.ReadinessProbe;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.reflect.Field;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Provides the logic to start and stop a reference-implementation-based RSP
  * including launching the felix command with flags for logging, port,
  * data directory, and data locking.
+ * The RSP runs detached from the IDE, it may be shared with other IDEs and
+ * outlive this one. Its output goes to ~/.rsp/&lt;id&gt;/daemon.log, the log
+ * of the launch before is kept as daemon.log.1.
  */
 public class ReferenceRspControllerImpl implements IRspStateController {
+    private static final long STARTUP_TIMEOUT = 60000;
+    private static final long KILL_TIMEOUT = 2000;
+    private static final String LOG_FILE = "daemon.log";
+    private static final String PREVIOUS_LOG_FILE = "daemon.log.1";
+
     private IRspType serverType;
     private int portMin;
     private int portMax;
 
     private Process runningProcess;
+    private final DaemonRegistry registry;
+    // Whether this IDE is one of the users of the running RSP
+    private volatile boolean user;
+    // A registered RSP this IDE was the last user of but did not launch, stopped by its pid
+    private volatile int releasedPid = -1;
 
     public ReferenceRspControllerImpl(IRspType rspServerType, int portMin, int portMax) {
         this.serverType = rspServerType;
+        this.registry = new DaemonRegistry(rspServerType.getId());
         this.portMin = portMin;
         this.portMax = portMax;
     }
@@ -55,43 +80,79 @@ public class ReferenceRspControllerImpl implements IRspStateController {
         if( !felixFile.exists() || !felixFile.isFile())
             throw new StartupFailedException("RSP does not appear to be installed or is broken. Please use the Download / Update RSP action.");
 
-        int port = new PortFinder().nextFreePort(portMin, portMax);
-        if( port == -1 )
-            throw new StartupFailedException("No free port within the defined range found.");
+        // Share an RSP another IDE already runs
+        DaemonRegistry.Entry running = registry.acquire();
+        if( running != null ) {
+            user = true;
+            checkVersion(running, rspHomeFile);
+            callback.updateRspState(IRspCore.IJServerState.STARTED);
+            return new ServerConnectionInfo("localhost", running.getPort());
+        }
 
-        File java = JavaUtils.findJavaExecutable();
+        File java = getJavaExecutable();
         if( java == null || !java.exists())
             throw new StartupFailedException("A java executable could not be located on this system.");
 
+        // An RSP started by a client that does not use the registry
         String portInUse = getLockedWorkspacePort();
         if( portInUse != null) {
+            // Recorded, so the IDE that started it does not stop it while it is used here
+            registry.join(Integer.parseInt(portInUse));
+            user = true;
             callback.updateRspState(IRspCore.IJServerState.STARTED);
             return new ServerConnectionInfo("localhost", Integer.parseInt(portInUse));
         }
-        PtyProcess p = startRSP(rspHome, port, java, callback);
-        if( p != null ) {
-            setRunningProcess(p);
-            try {
-                Project project = ProjectManager.getInstance().getOpenProjects()[0];
-                try {
-                    ExecHelper.linkProcessToTerminal(p, project, serverType.getId(), false, "Starting RSP Server");
-                } catch(Throwable t) {
-                    t.printStackTrace();
-                }
-            } catch (Throwable ioe) {
-                // TODO
-            }
 
-            boolean started = waitForPortInUse(port);
-            if (started) {
+        // Reserved until the RSP listens on it, so a parallel start cannot pick it too
+        int port = PortAllocator.getDefault().reserve(serverType.getId(), portMin, portMax);
+        if( port == -1 )
+            throw new StartupFailedException("No free port within the defined range found.");
+        try {
+            LaunchProfile profile = getLaunchProfile();
+            long launched = System.currentTimeMillis();
+            Process p = startRSP(rspHome, port, java, profile, callback);
+            setRunningProcess(p);
+            ReadinessProbe.Result ready = ReadinessProbe.waitForReady(p, "localhost", port, getLockFile(), STARTUP_TIMEOUT);
+            if (ready == ReadinessProbe.Result.READY) {
+                PortAllocator.getDefault().succeeded(serverType.getId(), port);
+                int pid = getPid(p);
+                registry.register(pid, port, RspInstallations.readDistributionVersion(rspHomeFile));
+                user = true;
+                callback.setLaunchInfo(new RspLaunchInfo(profile.getId(), pid,
+                        System.currentTimeMillis() - launched, ProcessStats.getRssKb(pid)));
                 callback.updateRspState(IRspCore.IJServerState.STARTED);
                 return new ServerConnectionInfo("localhost", port);
-            } else {
-                terminate(callback);
-                throw new StartupFailedException("Unable to connect to RSP after startup.");
             }
+            terminate(callback);
+            if( ready == ReadinessProbe.Result.EXITED)
+                throw new StartupFailedException("The RSP process exited during startup, see "
+                        + getLogFile().getAbsolutePath() + ".");
+            throw new StartupFailedException("Unable to connect to RSP after startup.");
+        } finally {
+            PortAllocator.getDefault().release(port);
+        }
+    }
+
+    @Override
+    public ServerConnectionInfo connect(IRspStartCallback callback) {
+        DaemonRegistry.Entry running = registry.find();
+        if( running != null )
+            checkVersion(running, new File(serverType.getServerHome()));
+        String port = running == null ? getLockedWorkspacePort() : Integer.toString(running.getPort());
+        if( port == null )
+            return null;
+        user = false;
+        callback.updateRspState(IRspCore.IJServerState.STARTED);
+        return new ServerConnectionInfo("localhost", Integer.parseInt(port));
+    }
+
+    @Override
+    public void acquire() {
+        // Not in the registry when started by a client that does not use it, there is nothing to join
+        if( !user ) {
+            registry.acquire();
+            user = true;
         }
-        return null;
     }
 
     private synchronized void setRunningProcess(Process p) {
@@ -102,21 +163,57 @@ public class ReferenceRspControllerImpl implements IRspStateController {
         return this.runningProcess;
     }
 
-    private boolean waitForPortInUse(int port) {
-        long time = System.currentTimeMillis();
-        while(System.currentTimeMillis() < (time + 60000)) {
-            if( !PortFinder.isLocalPortFree(port))
-                return true;
-            try {
-                Thread.sleep(1000);
-            } catch(InterruptedException ie) {
-                // Ignore
-            }
+    private synchronized void clearRunningProcess(Process p) {
+        if( this.runningProcess == p )
+            this.runningProcess = null;
+    }
+
+    private File getJavaExecutable() {
+        RspSettings settings = RspSettings.getInstance();
+        JdkDiscovery.JavaRuntime runtime = JdkDiscovery.getDefault().getPreferred(
+                settings == null ? null : settings.getJavaHome());
+        return runtime == null ? JavaUtils.findJavaExecutable() : runtime.getJavaExecutable();
+    }
+
+    private LaunchProfile getLaunchProfile() {
+        RspSettings settings = RspSettings.getInstance();
+        return settings == null ? LaunchProfile.DEFAULT : LaunchProfile.fromId(settings.getLaunchProfile());
+    }
+
+    /*
+     * A daemon started by another IDE may run an older or newer version than
+     * the one installed here, it keeps running until all its users stop it.
+     */
+    private void checkVersion(DaemonRegistry.Entry running, File rspHome) {
+        String installed = RspInstallations.readDistributionVersion(rspHome);
+        if( running.getVersion() == null || installed == null || running.getVersion().equals(installed))
+            return;
+        Notifications.Bus.notify(new Notification(EditServerListener.NOTIFICATION_ID, "RSP version mismatch",
+                serverType.getName() + " " + running.getVersion() + " is already running for another IDE, "
+                        + installed + " is installed. Stop it once the other IDEs no longer use it to run "
+                        + installed + ".", NotificationType.WARNING));
+    }
+
+    /*
+     * Process has no pid before java 9
+     */
+    private static int getPid(Process p) {
+        try {
+            return ((Long)Process.class.getMethod("pid").invoke(p)).intValue();
+        } catch(ReflectiveOperationException roe) {
+            // Java 8
+        }
+        try {
+            Field f = p.getClass().getDeclaredField("pid");
+            f.setAccessible(true);
+            return f.getInt(p);
+        } catch(ReflectiveOperationException | RuntimeException e) {
+            return -1;
         }
-        return false;
     }
 
-    private PtyProcess startRSP(String rspHome, int port, File java, IRspStartCallback callback) {
+    private Process startRSP(String rspHome, int port, File java, LaunchProfile profile, IRspStartCallback callback)
+            throws StartupFailedException {
         callback.updateRspState(IRspCore.IJServerState.STARTING);
         File workingDir = new File(rspHome);
         File felix = new File( new File(workingDir, "bin"), "felix.jar");
@@ -127,33 +224,184 @@ public class ReferenceRspControllerImpl implements IRspStateController {
         String logbackFlag =  "-Dlogback.configurationFile=./conf/logback.xml";
         String jar = "-jar";
 
-        String[] cmdArr = new String[] {cmd, portFlag, id, logbackFlag, jar, felix.getAbsolutePath()};
+        List<String> cmdList = new ArrayList<>();
+        cmdList.add(cmd);
+        cmdList.addAll(profile.getVmArgs());
+        if( profile == LaunchProfile.FAST_START )
+            cmdList.addAll(new ClassDataSharingArchive(serverType.getId(), workingDir, java).getVmArgs());
+        // Last, so they override the profile
+        RspSettings settings = RspSettings.getInstance();
+        if( settings != null )
+            cmdList.addAll(ParametersListUtil.parse(settings.getCustomVmArgs(serverType.getId())));
+        cmdList.addAll(Arrays.asList(portFlag, id, logbackFlag, jar, felix.getAbsolutePath()));
+        String[] cmdArr = cmdList.toArray(new String[0]);
         try {
-            PtyProcessBuilder builder = new PtyProcessBuilder(cmdArr);
-            builder.setDirectory(workingDir.getPath());
-            builder.setRedirectErrorStream(true);
-            PtyProcess p = builder.start();
+            // Not attached to a terminal or pipes of the IDE, so it survives the IDE
+            File log = getLogFile();
+            Files.createDirectories(log.getParentFile().toPath());
+            rollLog(log);
+            ProcessBuilder builder = new ProcessBuilder(cmdArr);
+            builder.directory(workingDir);
+            builder.redirectErrorStream(true);
+            builder.redirectOutput(ProcessBuilder.Redirect.to(log));
+            Process p = builder.start();
+            p.getOutputStream().close();
             ProcessMonitorThread pmt = new ProcessMonitorThread(p, (Process proc9) -> {
+                registry.remove(getPid(p));
                 callback.updateRspState(IRspCore.IJServerState.STOPPED);
-                setRunningProcess(null);
+                clearRunningProcess(proc9);
             });
             pmt.start();
             return p;
         } catch (IOException e) {
-            e.printStackTrace();
+            callback.updateRspState(IRspCore.IJServerState.STOPPED);
+            throw new StartupFailedException("Unable to launch the RSP: " + e.getMessage());
+        }
+    }
+
+    /*
+     * Keep the log of the previous launch only, the new launch starts an empty log
+     */
+    private static void rollLog(File log) {
+        if( !log.isFile())
+            return;
+        try {
+            Files.move(log.toPath(), new File(log.getParentFile(), PREVIOUS_LOG_FILE).toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch(IOException ioe) {
+            // The log is truncated instead
         }
-        return null;
     }
 
     @Override
     public void terminate(IRspStartCallback callback) {
+        RspSettings settings = RspSettings.getInstance();
+        terminate(callback, settings == null ? RspSettings.DEFAULT_TERMINATE_TIMEOUT * 1000L
+                : settings.getTerminateTimeout() * 1000L);
+    }
+
+    @Override
+    public void terminate(IRspStartCallback callback, long timeout) {
         Process p = getRunningProcess();
-        if( p != null )
+        if( p != null ) {
             p.destroy();
-        setRunningProcess(null);
+            if( !waitFor(p, timeout)) {
+                notifyKilled(timeout);
+                p.destroyForcibly();
+                waitFor(p, KILL_TIMEOUT);
+            }
+            clearRunningProcess(p);
+        } else if( releasedPid > 0 ) {
+            int pid = releasedPid;
+            releasedPid = -1;
+            if( destroy(pid, false) && !waitFor(pid, timeout)) {
+                notifyKilled(timeout);
+                destroy(pid, true);
+                waitFor(pid, KILL_TIMEOUT);
+            }
+            if( !isAlive(pid))
+                registry.remove(pid);
+        }
         callback.updateRspState(IRspCore.IJServerState.STOPPED);
     }
 
+    private void notifyKilled(long timeout) {
+        Notifications.Bus.notify(new Notification(EditServerListener.NOTIFICATION_ID, "RSP killed",
+                serverType.getName() + " did not exit within " + (timeout / 1000)
+                        + " seconds after being terminated and was killed.", NotificationType.WARNING));
+    }
+
+    @Override
+    public boolean release() {
+        user = false;
+        DaemonRegistry.Entry entry = registry.find();
+        Boolean last = registry.release();
+        // Without the registry, only a process this IDE launched is stopped
+        if( last == null )
+            return getRunningProcess() != null;
+        // A record dropped as dead while this IDE's process still runs
+        if( entry == null && getRunningProcess() != null )
+            return true;
+        // Launched by another IDE that exited, it is waited for and terminated by its pid
+        releasedPid = last && getRunningProcess() == null && entry != null ? entry.getPid() : -1;
+        return last;
+    }
+
+    @Override
+    public boolean waitForExit(long timeout) {
+        Process p = getRunningProcess();
+        if( p != null )
+            return waitFor(p, timeout);
+        int pid = releasedPid;
+        return pid <= 0 || waitFor(pid, timeout);
+    }
+
+    private static boolean waitFor(Process p, long timeout) {
+        try {
+            return p.waitFor(timeout, TimeUnit.MILLISECONDS);
+        } catch(InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return !p.isAlive();
+        }
+    }
+
+    /**
+     * Wait for a process this IDE did not launch to exit.
+     * Whether it did is only known on Linux and on Java 9 or later,
+     * elsewhere it is assumed to have exited.
+     */
+    private static boolean waitFor(int pid, long timeout) {
+        long end = System.currentTimeMillis() + timeout;
+        while( isAlive(pid)) {
+            if( System.currentTimeMillis() >= end )
+                return false;
+            try {
+                Thread.sleep(100);
+            } catch(InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                return !isAlive(pid);
+            }
+        }
+        return true;
+    }
+
+    private static boolean isAlive(int pid) {
+        if( ProcessStats.isSupported())
+            return new File("/proc/" + pid).exists();
+        Object handle = getProcessHandle(pid);
+        try {
+            return handle != null && (Boolean)Class.forName("java.lang.ProcessHandle")
+                    .getMethod("isAlive").invoke(handle);
+        } catch(ReflectiveOperationException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Ask a process this IDE did not launch to exit, or kill it
+     * @return true if the request was sent
+     */
+    private static boolean destroy(int pid, boolean force) {
+        Object handle = getProcessHandle(pid);
+        try {
+            return handle != null && (Boolean)Class.forName("java.lang.ProcessHandle")
+                    .getMethod(force ? "destroyForcibly" : "destroy").invoke(handle);
+        } catch(ReflectiveOperationException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    private static Object getProcessHandle(int pid) {
+        try {
+            Optional<?> handle = (Optional<?>)Class.forName("java.lang.ProcessHandle")
+                    .getMethod("of", long.class).invoke(null, (long)pid);
+            return handle.orElse(null);
+        } catch(ReflectiveOperationException | RuntimeException e) {
+            // Java 8
+            return null;
+        }
+    }
+
     private String getLockedWorkspacePort() {
         File lockFile = getLockFile();
         if( !lockFile.exists())
@@ -173,6 +421,10 @@ public class ReferenceRspControllerImpl implements IRspStateController {
         return portInUse;
     }
 
+    private File getLogFile() {
+        return new File(getLockFile().getParentFile(), LOG_FILE);
+    }
+
     private File getLockFile() {
         String userHome = JavaUtils.getUserHome();
         return new File(userHome).toPath().resolve(".rsp").resolve(serverType.getId()).resolve(".lock").toFile();
@@ -22,20 +22,37 @@ import com.redhat.devtools.intellij.rsp.model.IRsp;
 import com.redhat.devtools.intellij.rsp.model.IRspCore;
 import com.redhat.devtools.intellij.rsp.model.IRspCoreChangeListener;
 import com.redhat.devtools.intellij.rsp.model.IRspType;
+import com.redhat.devtools.intellij.rsp.model.LatencyHistogram;
+import com.redhat.devtools.intellij.rsp.model.ProcessTelemetry;
 import com.redhat.devtools.intellij.rsp.model.ServerConnectionInfo;
+import com.redhat.devtools.intellij.rsp.types.AbstractServerConnector;
 import com.redhat.devtools.intellij.rsp.types.CommunityServerConnector;
 import com.redhat.devtools.intellij.rsp.types.RedHatServerConnector;
 import com.redhat.devtools.intellij.rsp.ui.dialogs.StringPromptDialog;
 import com.redhat.devtools.intellij.rsp.ui.util.UIHelper;
+import com.redhat.devtools.intellij.rsp.util.JdkDiscovery;
+import com.redhat.devtools.intellij.rsp.util.ReadinessProbe;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 import org.jboss.tools.rsp.api.ICapabilityKeys;
+import org.jboss.tools.rsp.api.RSPServer;
 import org.jboss.tools.rsp.api.dao.ClientCapabilitiesRequest;
 import org.jboss.tools.rsp.api.dao.JobHandle;
 import org.jboss.tools.rsp.api.dao.JobProgress;
@@ -53,18 +70,44 @@ import org.jboss.tools.rsp.api.dao.StringPrompt;
  * to listeners and stores some basic information about each model object
  */
 public class RspCore implements IRspCore {
-    private static RspCore instance = new RspCore();
+    // How long to try reconnecting to a running RSP before terminating it
+    private static final long RECONNECT_TIMEOUT = 30000;
+    private static final long RECONNECT_MIN_DELAY = 50;
+    private static final long RECONNECT_MAX_DELAY = 2000;
+    private static final long RESYNC_TIMEOUT = 10000;
+
+    // Created on first use, not when the class is loaded
+    private static class Holder {
+        private static final RspCore INSTANCE = new RspCore();
+    }
     public static RspCore getDefault() {
-        return instance;
+        return Holder.INSTANCE;
+    }
+
+    private static volatile boolean created = false;
+
+    /**
+     * Whether the model was created, without creating it
+     */
+    public static boolean isCreated() {
+        return created;
     }
 
 
-    private Map<String,SingleRspModel> allRsps = new HashMap<>();
-    private List<IRspCoreChangeListener> listeners = new ArrayList<>();
-    private Map<String, RspProgressJob> uiJobs = new HashMap<>();
+    private final Map<String,SingleRspModel> allRsps = new ConcurrentHashMap<>();
+    private final List<IRspCoreChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final Map<String, RspProgressJob> uiJobs = new ConcurrentHashMap<>();
+    private final Map<String, AbstractServerConnector> connectors = new LinkedHashMap<>();
+    private final AtomicBoolean activated = new AtomicBoolean(false);
+    private final Map<String, CompletableFuture<IntelliJRspClientLauncher>> starting = new ConcurrentHashMap<>();
+    private final HeartbeatMonitor heartbeat = new HeartbeatMonitor(this);
+    private final IdleMonitor idle = new IdleMonitor(this);
+    private final TelemetrySampler telemetry = new TelemetrySampler(this);
 
     private RspCore() {
         loadRSPs();
+        activate();
+        created = true;
     }
 
     @Override
@@ -83,51 +126,218 @@ public class RspCore implements IRspCore {
         return null;
     }
 
-    private SingleRspModel findModel(String typeId) {
+    /**
+     * Get the connector an RSP type was created from, or null if it is not known
+     */
+    public AbstractServerConnector findConnector(String typeId) {
+        return connectors.get(typeId);
+    }
+
+    SingleRspModel findModel(String typeId) {
         return allRsps.get(typeId);
     }
 
+    /*
+     * Build the model from what is on disk only: the installations and the
+     * cached latest versions. The tree can be shown right away.
+     */
     private void loadRSPs() {
         // TODO load from xml file or something
-        IRsp rht = new RedHatServerConnector().getRsp(this);
-        IRsp community = new CommunityServerConnector().getRsp(this);
-        allRsps.put(rht.getRspType().getId(), new SingleRspModel(rht));
-        allRsps.put(community.getRspType().getId(), new SingleRspModel(community));
+        AbstractServerConnector[] all = new AbstractServerConnector[] {
+                new RedHatServerConnector(), new CommunityServerConnector()
+        };
+        for( AbstractServerConnector connector : all ) {
+            IRsp rsp = connector.getRsp(this);
+            connectors.put(rsp.getRspType().getId(), connector);
+            allRsps.put(rsp.getRspType().getId(), new SingleRspModel(rsp));
+        }
     }
 
-    public void startServer(IRsp server) {
-        ServerConnectionInfo info = server.start();
-        if( info != null ) {
-            try {
-                IntelliJRspClientLauncher launcher = launch(server, info.getHost(), info.getPort());
-                String typeId = server.getRspType().getId();
-                SingleRspModel srm = findModel(typeId);
-                if( srm != null ) {
-                    srm.setClient(launcher);
-                }
-            } catch(IOException e ) {
+    /*
+     * Resolve the latest version of every RSP in parallel, in the background.
+     * Each RSP updates the model as soon as its information arrives.
+     * The java runtimes are found meanwhile, so the first start does not wait for it.
+     * Then follow RSPs being started and stopped by other clients.
+     */
+    private void activate() {
+        if( !activated.compareAndSet(false, true))
+            return;
+        ExecutorService executor = Executors.newFixedThreadPool(connectors.size(), r -> {
+            Thread t = new Thread(r, "Activate RSP");
+            t.setDaemon(true);
+            return t;
+        });
+        for( Map.Entry<String, AbstractServerConnector> entry : connectors.entrySet()) {
+            SingleRspModel srm = findModel(entry.getKey());
+            executor.execute(() -> {
+                new RspInstallations(srm.getType()).cleanup();
+                entry.getValue().refreshLatest(srm.getServer());
+            });
+        }
+        executor.execute(() -> JdkDiscovery.getDefault().getRuntimes());
+        executor.shutdown();
+        new RspLockWatcher(this).start(getRSPs());
+        idle.start();
+        telemetry.start();
+    }
 
-            } catch(InterruptedException ie) {
+    @Override
+    public CompletableFuture<IntelliJRspClientLauncher> startServer(IRsp server) {
+        return startServer(server, false);
+    }
 
-            } catch( ExecutionException ee) {
+    /**
+     * Connect to an RSP another client started, without becoming one of its users
+     */
+    CompletableFuture<IntelliJRspClientLauncher> follow(IRsp server) {
+        return startServer(server, true);
+    }
 
+    private CompletableFuture<IntelliJRspClientLauncher> startServer(IRsp server, boolean follow) {
+        String id = server.getRspType().getId();
+        CompletableFuture<IntelliJRspClientLauncher> created = new CompletableFuture<>();
+        CompletableFuture<IntelliJRspClientLauncher> inFlight = starting.putIfAbsent(id, created);
+        if( inFlight != null )
+            return inFlight;
+        IntelliJRspClientLauncher client = follow ? findClient(server) : getClient(server);
+        if( client != null && server.getState() == IJServerState.STARTED) {
+            // Using an RSP that is only followed makes this IDE one of its users
+            if( !follow )
+                server.acquire();
+            starting.remove(id, created);
+            created.complete(client);
+            return created;
+        }
+        new Thread("Start RSP Server: " + id) {
+            public void run() {
+                try {
+                    created.complete(startAndConnect(server, follow));
+                } catch(Throwable t) {
+                    created.completeExceptionally(t);
+                } finally {
+                    starting.remove(id, created);
+                }
             }
+        }.start();
+        return created;
+    }
+
+    /*
+     * Returns null if the start failed, the start reported it already.
+     * An RSP that started but could not be connected to is stopped again,
+     * so it is not left started without a client.
+     */
+    private IntelliJRspClientLauncher startAndConnect(IRsp server, boolean follow)
+            throws IOException, InterruptedException, ExecutionException {
+        ServerConnectionInfo info = follow ? server.connect() : server.start();
+        if( info == null )
+            return null;
+        IntelliJRspClientLauncher launcher;
+        try {
+            launcher = launch(server, info.getHost(), info.getPort());
+        } catch(IOException | ExecutionException e) {
+            server.stop();
+            throw e;
+        } catch(InterruptedException ie) {
+            server.stop();
+            Thread.currentThread().interrupt();
+            throw ie;
+        }
+        String typeId = server.getRspType().getId();
+        SingleRspModel srm = findModel(typeId);
+        if( srm != null ) {
+            srm.setClient(launcher);
         }
+        heartbeat.start(server, launcher);
+        return launcher;
     }
 
     public IntelliJRspClientLauncher getClient(IRsp rsp) {
+        idle.markActive(rsp);
+        return findClient(rsp);
+    }
+
+    @Override
+    public CompletableFuture<IntelliJRspClientLauncher> getClientAsync(IRsp rsp) {
+        idle.markActive(rsp);
+        return startServer(rsp);
+    }
+
+    @Override
+    public boolean isStoppedWhileIdle(IRsp rsp) {
+        return idle.isStoppedWhileIdle(rsp);
+    }
+
+    /*
+     * Get the client without counting it as a use of the RSP
+     */
+    IntelliJRspClientLauncher findClient(IRsp rsp) {
         SingleRspModel srm = findModel(rsp.getRspType().getId());
         return srm == null ? null : srm.getClient();
     }
 
+    @Override
+    public LatencyHistogram getLatency(IRsp rsp) {
+        return heartbeat.getLatency(rsp);
+    }
+
+    @Override
+    public ProcessTelemetry getTelemetry(IRsp rsp) {
+        return telemetry.getTelemetry(rsp);
+    }
+
+    @Override
+    public ProcessTelemetry getTelemetry(IRsp rsp, String serverId) {
+        return telemetry.getTelemetry(rsp, serverId);
+    }
+
     @Override
     public void stopServer(IRsp server) {
         server.stop();
     }
 
+    /**
+     * Stop all running RSPs at the same time, waiting at most the given time.
+     * RSPs that have not stopped by then are left to exit with the IDE.
+     * @param shutdownTimeout the time each RSP gets to shut down before it is terminated
+     * @param terminateTimeout the time each RSP gets to exit after being terminated, before it is killed
+     * @param wait the maximum time to wait for all RSPs, in milliseconds
+     */
+    public void stopAll(long shutdownTimeout, long terminateTimeout, long wait) {
+        List<IRsp> running = new ArrayList<>();
+        for( IRsp rsp : getRSPs()) {
+            IJServerState state = rsp.getState();
+            if( state == IJServerState.STARTED || state == IJServerState.STARTING )
+                running.add(rsp);
+        }
+        if( running.isEmpty())
+            return;
+        CountDownLatch latch = new CountDownLatch(running.size());
+        for( IRsp rsp : running ) {
+            Thread t = new Thread("Stop RSP Server: " + rsp.getRspType().getId()) {
+                public void run() {
+                    try {
+                        rsp.stop(shutdownTimeout, terminateTimeout);
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            };
+            t.setDaemon(true);
+            t.start();
+        }
+        try {
+            latch.await(wait, TimeUnit.MILLISECONDS);
+        } catch(InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     @Override
     public void stateUpdated(RspImpl rspServer) {
+        idle.stateUpdated(rspServer);
         if( rspServer.getState() == IJServerState.STOPPED) {
+            heartbeat.stop(rspServer);
             SingleRspModel srm = findModel(rspServer.getRspType().getId());
             if(srm != null ) {
                 srm.setClient(null);
@@ -140,14 +350,131 @@ public class RspCore implements IRspCore {
     private IntelliJRspClientLauncher launch(IRsp rsp, String host, int port) throws IOException, InterruptedException, ExecutionException {
         IntelliJRspClientLauncher launcher = new IntelliJRspClientLauncher(rsp, host, port);
         launcher.setListener(() -> {
-            rsp.terminate();
+            connectionClosed(rsp, launcher, host, port);
         });
-        launcher.launch();
-        ClientCapabilitiesRequest clientCapRequest = createClientCapabilitiesRequest();
-        launcher.getServerProxy().registerClientCapabilities(clientCapRequest).get();
+        try {
+            launcher.launch();
+            ClientCapabilitiesRequest clientCapRequest = createClientCapabilitiesRequest();
+            launcher.getServerProxy().registerClientCapabilities(clientCapRequest).get();
+        } catch(IOException | InterruptedException | ExecutionException e) {
+            close(launcher);
+            throw e;
+        }
         return launcher;
     }
 
+    /*
+     * The connection to an RSP closed. If the RSP is still meant to be running,
+     * try to connect to it again instead of terminating it.
+     */
+    private void connectionClosed(IRsp rsp, IntelliJRspClientLauncher closed, String host, int port) {
+        SingleRspModel srm = findModel(rsp.getRspType().getId());
+        // Only the current connection matters
+        if( srm == null || srm.getClient() != closed )
+            return;
+        // The stop sequence takes care of it
+        if( rsp.getState() == IJServerState.STOPPING )
+            return;
+        if( rsp.getState() != IJServerState.STARTED ) {
+            rsp.terminate();
+            return;
+        }
+        new Thread("Reconnect RSP: " + rsp.getRspType().getId()) {
+            public void run() {
+                reconnect(rsp, srm, host, port);
+            }
+        }.start();
+    }
+
+    private void reconnect(IRsp rsp, SingleRspModel srm, String host, int port) {
+        long end = System.currentTimeMillis() + RECONNECT_TIMEOUT;
+        long delay = RECONNECT_MIN_DELAY;
+        // Stops as soon as the process exits, its monitor marks the RSP stopped
+        while( System.currentTimeMillis() < end && rsp.getState() == IJServerState.STARTED) {
+            if( ReadinessProbe.isAcceptingConnections(host, port)) {
+                IntelliJRspClientLauncher launcher = null;
+                try {
+                    launcher = launch(rsp, host, port);
+                    // Only a connection that is in sync becomes the client
+                    resync(rsp, srm, launcher);
+                    srm.setClient(launcher);
+                    heartbeat.start(rsp, launcher);
+                    return;
+                } catch(IOException | ExecutionException | TimeoutException e) {
+                    // Try again
+                    close(launcher);
+                } catch(InterruptedException ie) {
+                    close(launcher);
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            try {
+                Thread.sleep(delay);
+            } catch(InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            delay = Math.min(RECONNECT_MAX_DELAY, delay * 2);
+        }
+        if( rsp.getState() == IJServerState.STARTED )
+            rsp.terminate();
+    }
+
+    private static void close(IntelliJRspClientLauncher launcher) {
+        if( launcher != null )
+            launcher.closeConnection();
+    }
+
+    /*
+     * Fetch the servers, their states and the jobs in bulk and replace
+     * the model in one go, events may have been missed while disconnected.
+     * Server process terminals stay linked, their output arrives on the new connection.
+     */
+    private void resync(IRsp rsp, SingleRspModel srm, IntelliJRspClientLauncher launcher)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        RSPServer proxy = launcher.getServerProxy();
+        CompletableFuture<List<JobProgress>> jobsFuture = proxy.getJobs();
+        List<ServerHandle> handles = proxy.getServerHandles().get(RESYNC_TIMEOUT, TimeUnit.MILLISECONDS);
+        List<CompletableFuture<ServerState>> stateFutures = new ArrayList<>();
+        for( ServerHandle sh : handles ) {
+            stateFutures.add(proxy.getServerState(sh));
+        }
+        CompletableFuture.allOf(stateFutures.toArray(new CompletableFuture[0]))
+                .get(RESYNC_TIMEOUT, TimeUnit.MILLISECONDS);
+        List<ServerState> states = new ArrayList<>();
+        for( CompletableFuture<ServerState> f : stateFutures ) {
+            states.add(f.get());
+        }
+        List<JobProgress> jobs = jobsFuture.get(RESYNC_TIMEOUT, TimeUnit.MILLISECONDS);
+        srm.resync(states, jobs);
+        syncUiJobs(rsp, jobs);
+        modelUpdated(rsp);
+    }
+
+    private void syncUiJobs(IRsp rsp, List<JobProgress> jobs) {
+        Set<String> running = new HashSet<>();
+        for( JobProgress jp : jobs ) {
+            String id = jobHandleToUniqueId(rsp, jp.getHandle());
+            running.add(id);
+            RspProgressJob uiJob = uiJobs.get(id);
+            if( uiJob == null ) {
+                uiJob = new RspProgressJob(rsp, jp.getHandle());
+                uiJobs.put(id, uiJob);
+                ProgressManager.getInstance().run(uiJob);
+            }
+            uiJob.setJobProgress(jp);
+        }
+        String prefix = rsp.getRspType().getId() + ":";
+        for( Map.Entry<String, RspProgressJob> entry : new ArrayList<>(uiJobs.entrySet())) {
+            if( entry.getKey().startsWith(prefix) && !running.contains(entry.getKey())) {
+                entry.getValue().setJobRemoved(new JobRemoved(entry.getValue().getJobHandle(),
+                        new Status(Status.OK, "intellij-rsp", "Job finished while disconnected")));
+                uiJobs.remove(entry.getKey());
+            }
+        }
+    }
+
     private ClientCapabilitiesRequest createClientCapabilitiesRequest() {
         Map<String, String> clientCap = new HashMap<>();
         clientCap.put(ICapabilityKeys.STRING_PROTOCOL_VERSION, ICapabilityKeys.PROTOCOL_VERSION_0_10_0);
@@ -208,6 +535,7 @@ public class RspCore implements IRspCore {
      */
     @Override
     public void jobAdded(IRsp rsp, JobHandle jobHandle) {
+        idle.markActive(rsp);
         SingleRspModel model = findModel(rsp.getRspType().getId());
         if( model != null ) {
             model.addJob(jobHandle);
@@ -225,6 +553,7 @@ public class RspCore implements IRspCore {
 
     @Override
     public void jobRemoved(IRsp rsp, JobRemoved jobRemoved) {
+        idle.markActive(rsp);
         SingleRspModel model = findModel(rsp.getRspType().getId());
         if( model != null ) {
             model.removeJob(jobRemoved.getHandle());
@@ -240,7 +569,7 @@ public class RspCore implements IRspCore {
 
     @Override
     public void jobChanged(IRsp rsp, JobProgress jobProgress) {
-
+        idle.markActive(rsp);
         SingleRspModel model = findModel(rsp.getRspType().getId());
         if( model != null ) {
             model.jobChanged(jobProgress);
@@ -265,6 +594,7 @@ public class RspCore implements IRspCore {
 
     @Override
     public void serverAdded(IRsp rsp, ServerHandle serverHandle) {
+        idle.markActive(rsp);
         SingleRspModel model = findModel(rsp.getRspType().getId());
         if( model != null ) {
             model.addServer(serverHandle);
@@ -274,6 +604,7 @@ public class RspCore implements IRspCore {
 
     @Override
     public void serverRemoved(IRsp rsp, ServerHandle serverHandle) {
+        idle.markActive(rsp);
         SingleRspModel model = findModel(rsp.getRspType().getId());
         if( model != null ) {
             model.removeServer(serverHandle);
@@ -288,6 +619,7 @@ public class RspCore implements IRspCore {
 
     @Override
     public void serverStateChanged(IRsp rsp, ServerState serverState) {
+        idle.serverChanged(rsp, serverState);
         SingleRspModel model = findModel(rsp.getRspType().getId());
         if( model != null ) {
             model.updateServer(serverState);
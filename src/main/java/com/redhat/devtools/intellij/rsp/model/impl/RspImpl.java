@@ -10,21 +10,29 @@
  ******************************************************************************/
 package com.redhat.devtools.intellij.rsp.model.impl;
 
+import com.intellij.notification.Notification;
+import com.intellij.notification.NotificationType;
+import com.intellij.notification.Notifications;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.progress.Task;
 import com.intellij.openapi.ui.Messages;
 import com.redhat.devtools.intellij.rsp.model.*;
 import com.redhat.devtools.intellij.rsp.client.IntelliJRspClientLauncher;
+import com.redhat.devtools.intellij.rsp.download.DeltaUpdateUtility;
+import com.redhat.devtools.intellij.rsp.download.DistributionMirror;
 import com.redhat.devtools.intellij.rsp.download.DownloadUtility;
-import com.redhat.devtools.intellij.rsp.download.UnzipUtility;
+import com.redhat.devtools.intellij.rsp.editor.EditServerListener;
+import com.redhat.devtools.intellij.rsp.settings.RspSettings;
 import com.redhat.devtools.intellij.rsp.ui.util.UIHelper;
+import org.jboss.tools.rsp.api.RSPServer;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * The implementation for an RSP.
@@ -35,19 +43,22 @@ public class RspImpl implements IRsp, IRspStartCallback {
     private final IRspStateController controller;
     private final IRspCore model;
     private IRspType type;
-    private String latestVersion;
-    private String downloadUrl;
+    private volatile RspRelease latest;
+    private volatile RspLaunchInfo launchInfo;
     private IRspCore.IJServerState currentState;
+    private final AtomicBoolean installing = new AtomicBoolean(false);
+    // Read from disk whenever the installations change, the tree asks for it on the UI thread
+    private volatile boolean rollbackAvailable;
 
     public RspImpl(IRspCore model, IRspType type,
                    String latestVersion, String downloadUrl,
                    IRspStateController controller) {
         this.model = model;
         this.type = type;
-        this.latestVersion = latestVersion;
-        this.downloadUrl = downloadUrl;
+        this.latest = latestVersion == null ? null : new RspRelease(latestVersion, downloadUrl);
         this.controller = controller;
         this.currentState = exists() ?  IRspCore.IJServerState.STOPPED : IRspCore.IJServerState.MISSING;
+        this.rollbackAvailable = new RspInstallations(type).canRollback();
     }
 
     @Override
@@ -61,7 +72,25 @@ public class RspImpl implements IRsp, IRspStartCallback {
 
     @Override
     public String getLatestVersion() {
-        return latestVersion;
+        RspRelease release = latest;
+        return release == null ? null : release.getVersion();
+    }
+
+    @Override
+    public String getLatestDownloadUrl() {
+        RspRelease release = latest;
+        return release == null ? null : release.getDownloadUrl();
+    }
+
+    @Override
+    public RspRelease getLatestRelease() {
+        return latest;
+    }
+
+    @Override
+    public void setLatestVersion(String version, String url) {
+        this.latest = version == null ? null : new RspRelease(version, url);
+        model.modelUpdated(this);
     }
 
     @Override
@@ -96,6 +125,16 @@ public class RspImpl implements IRsp, IRspStartCallback {
         }
     }
 
+    @Override
+    public ServerConnectionInfo connect() {
+        return getController().connect(this);
+    }
+
+    @Override
+    public void acquire() {
+        getController().acquire();
+    }
+
     @Override
     public void terminate() {
         getController().terminate(this);
@@ -103,15 +142,37 @@ public class RspImpl implements IRsp, IRspStartCallback {
 
     @Override
     public void stop() {
+        RspSettings settings = RspSettings.getInstance();
+        int shutdown = settings == null ? RspSettings.DEFAULT_SHUTDOWN_TIMEOUT : settings.getShutdownTimeout();
+        int terminate = settings == null ? RspSettings.DEFAULT_TERMINATE_TIMEOUT : settings.getTerminateTimeout();
+        stop(shutdown * 1000L, terminate * 1000L);
+    }
+
+    @Override
+    public void stop(long shutdownTimeout, long terminateTimeout) {
         updateRspState(IRspCore.IJServerState.STOPPING);
         IntelliJRspClientLauncher client = model.getClient(this);
-        if( client != null ) {
-            if( client.getServerProxy() != null ) {
-                client.getServerProxy().shutdown();
+        if( !getController().release()) {
+            // Other IDEs still use the RSP, only disconnect
+            if( client != null )
+                client.closeConnection();
+            updateRspState(IRspCore.IJServerState.STOPPED);
+            return;
+        }
+        RSPServer proxy = client == null ? null : client.getServerProxy();
+        if( proxy != null ) {
+            proxy.shutdown();
+            if( getController().waitForExit(shutdownTimeout)) {
+                // Also covers an RSP started by someone else, which has no process here
+                if( getState() != IRspCore.IJServerState.STOPPED )
+                    updateRspState(IRspCore.IJServerState.STOPPED);
                 return;
             }
+            Notifications.Bus.notify(new Notification(EditServerListener.NOTIFICATION_ID, "RSP terminated",
+                    getRspType().getName() + " did not shut down within " + (shutdownTimeout / 1000)
+                            + " seconds and is being terminated.", NotificationType.WARNING));
         }
-        terminate();
+        getController().terminate(this, terminateTimeout);
     }
 
     @Override
@@ -128,48 +189,117 @@ public class RspImpl implements IRsp, IRspStartCallback {
 
     @Override
     public void download() {
-        boolean b = exists();
-        if( !b && latestVersion != null && downloadUrl != null ) {
-            final String serverHome = this.type.getServerHome();
-            ProgressManager.getInstance().run(new Task.Backgroundable(null, "Downloading " + getRspType().getName()) {
-
-                @Override
-                public void run(@NotNull ProgressIndicator indicator) {
-                    File toDl = getRspDownloadLocation();
-                    toDl.getParentFile().mkdirs();
-                    File toExtract = new File(serverHome);
-                    try {
-                        new DownloadUtility().download(downloadUrl, toDl.toPath(), indicator);
-                        if( toDl.exists()) {
-                            UnzipUtility util = new UnzipUtility(toDl);
-                            util.extract(toExtract);
-                            String root = util.getRoot();
-                            File extractedRoot = toExtract.toPath().resolve(root).toFile();
-                            File dotVersion = new File(extractedRoot, RspTypeImpl.FILE_DOT_VERSION);
-                            if( !dotVersion.exists()) {
-                                Files.write(dotVersion.toPath(), getLatestVersion().getBytes());
-                            }
-                        }
-                    } catch(IOException ioe) {
-                    }
-                    if( exists() ) {
-                        updateRspState(IRspCore.IJServerState.STOPPED);
-                    } else {
-                        updateRspState(IRspCore.IJServerState.MISSING);
-                    }
+        RspRelease release = latest;
+        if( release == null || release.getDownloadUrl() == null )
+            return;
+        if( !installing.compareAndSet(false, true))
+            return;
+        final String version = release.getVersion();
+        final String url = release.getDownloadUrl();
+        ProgressManager.getInstance().run(new Task.Backgroundable(null, "Downloading " + getRspType().getName()) {
+
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                try {
+                    install(version, url, indicator);
+                } finally {
+                    installing.set(false);
+                }
+            }
+        });
+    }
 
+    /*
+     * Install into a staging folder next to the current version. The current
+     * version keeps working, even while running, until the new one is
+     * complete and the active pointer is switched. A failed download only
+     * discards the staging folder, and is reported unless it was canceled.
+     */
+    private void install(String version, String url, ProgressIndicator indicator) {
+        RspInstallations installations = new RspInstallations(getRspType());
+        File toDl = getRspDownloadLocation(version);
+        File staging = null;
+        try {
+            staging = installations.createStagingDirectory(version);
+            String root = null;
+            boolean updated = false;
+            DistributionMirror mirror = DistributionMirror.getConfigured();
+            File mirrored = mirror == null ? null : mirror.findDistribution(getRspType().getId(), url);
+            if( mirrored != null ) {
+                root = new DownloadUtility().extract(mirrored.toPath(), staging.toPath(), indicator);
+                updated = true;
+            } else if( exists()) {
+                // Only fetch the entries that changed since the installed version
+                DeltaUpdateUtility delta = new DeltaUpdateUtility(url);
+                try {
+                    updated = delta.update(new File(getRspType().getServerHome()), staging, indicator);
+                    root = delta.getRoot();
+                } catch(IOException ioe) {
+                    if( indicator.isCanceled())
+                        throw ioe;
                 }
+                if( !updated ) {
+                    // Start over with an empty staging folder
+                    staging = installations.createStagingDirectory(version);
+                }
+            }
+            if( !updated ) {
+                root = new DownloadUtility().downloadAndExtract(url,
+                        toDl.toPath(), staging.toPath(), indicator);
+            }
+            File extractedRoot = root == null ? staging : staging.toPath().resolve(root).toFile();
+            File dotVersion = new File(extractedRoot, RspTypeImpl.FILE_DOT_VERSION);
+            if( !dotVersion.exists()) {
+                Files.write(dotVersion.toPath(), version.getBytes());
+            }
+            installations.activate(staging, version);
+        } catch(IOException ioe) {
+            if( staging != null )
+                installations.abort(staging);
+            if( !indicator.isCanceled()) {
+                UIHelper.executeInUI(() -> {
+                    Messages.showErrorDialog(ioe.getMessage(), "Unable to install RSP");
+                });
+            }
+        }
+        installedStateChanged();
+    }
+
+    private void installedStateChanged() {
+        rollbackAvailable = new RspInstallations(getRspType()).canRollback();
+        if( !exists() ) {
+            updateRspState(IRspCore.IJServerState.MISSING);
+        } else if( getState() == IRspCore.IJServerState.MISSING ) {
+            updateRspState(IRspCore.IJServerState.STOPPED);
+        } else {
+            model.modelUpdated(this);
+        }
+    }
+
+    @Override
+    public boolean canRollback() {
+        return rollbackAvailable;
+    }
+
+    @Override
+    public void rollback() {
+        try {
+            new RspInstallations(getRspType()).rollback();
+        } catch(IOException ioe) {
+            UIHelper.executeInUI(() -> {
+                Messages.showErrorDialog(ioe.getMessage(), "Unable to roll back RSP");
             });
         }
+        installedStateChanged();
     }
 
 
-    protected File getRspDownloadLocation() {
+    protected File getRspDownloadLocation(String version) {
         File home = new File(System.getProperty(RspTypeImpl.SYSPROP_USER_HOME));
         File root = new File(home, RspTypeImpl.DATA_LOCATION_DEFAULT);
         File installs = new File(root, RspTypeImpl.INSTALLATIONS);
         File downloads = new File(installs, RspTypeImpl.DOWNLOADS);
-        File dlFile = new File(downloads, getRspType().getId() + "-" + getLatestVersion() + ".zip");
+        File dlFile = new File(downloads, getRspType().getId() + "-" + version + ".zip");
         return dlFile;
     }
     protected IRspStateController getController() {
@@ -177,6 +307,16 @@ public class RspImpl implements IRsp, IRspStartCallback {
     }
 
 
+    @Override
+    public void setLaunchInfo(RspLaunchInfo info) {
+        this.launchInfo = info;
+    }
+
+    @Override
+    public RspLaunchInfo getLaunchInfo() {
+        return launchInfo;
+    }
+
     @Override
     public void updateRspState(IRspCore.IJServerState state) {
         this.currentState = state;
@@ -0,0 +1,237 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package com.redhat.devtools.intellij.rsp.model.impl;
+
+import com.redhat.devtools.intellij.rsp.model.IRspType;
+import com.redhat.devtools.intellij.rsp.util.DeletionService;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps each installed version of an RSP in its own folder under
+ * ~/.rsp/.rspInstalls/versions/&lt;id&gt;/&lt;version&gt;.
+ * A small pointer file names the active version and is replaced atomically,
+ * so a new version is only visible once it is completely extracted.
+ * The version that was active before stays on disk for rollback.
+ *
+ * Installations from before this layout live in expanded/&lt;id&gt; and
+ * are used whenever no version is active.
+ */
+public class RspInstallations {
+    private static final String STAGING_SUFFIX = ".partial";
+
+    private final IRspType type;
+
+    public RspInstallations(IRspType type) {
+        this.type = type;
+    }
+
+    public static File getVersionsLocation(IRspType type) {
+        File home = new File(System.getProperty(RspTypeImpl.SYSPROP_USER_HOME));
+        File root = new File(home, RspTypeImpl.DATA_LOCATION_DEFAULT);
+        File installs = new File(root, RspTypeImpl.INSTALLATIONS);
+        File versions = new File(installs, RspTypeImpl.VERSIONS);
+        return new File(versions, type.getId());
+    }
+
+    /**
+     * Read the version an installation was downloaded as, or null if it is not recorded
+     */
+    public static String readDistributionVersion(File rspHome) {
+        File dotVersion = new File(rspHome, RspTypeImpl.FILE_DOT_VERSION);
+        if( !dotVersion.isFile())
+            return null;
+        try {
+            return new String(Files.readAllBytes(dotVersion.toPath()), StandardCharsets.UTF_8).trim();
+        } catch(IOException ioe) {
+            return null;
+        }
+    }
+
+    /**
+     * Get the folder of the active version, or null if no versioned install is active
+     */
+    public File getActiveInstallation() {
+        String current = readPointer(RspTypeImpl.FILE_CURRENT);
+        if (current == null)
+            return null;
+        File dir = new File(getVersionsLocation(type), current);
+        return dir.isDirectory() ? dir : null;
+    }
+
+    public String getActiveVersion() {
+        return getActiveInstallation() == null ? null : readPointer(RspTypeImpl.FILE_CURRENT);
+    }
+
+    /**
+     * Get the version that was active before the current one, if it is still installed
+     */
+    public String getPreviousVersion() {
+        String previous = readPointer(RspTypeImpl.FILE_PREVIOUS);
+        if (previous == null || !new File(getVersionsLocation(type), previous).isDirectory())
+            return null;
+        return previous;
+    }
+
+    private boolean hasLegacyInstallation() {
+        File legacy = RspTypeImpl.getServerTypeInstallLocation(type);
+        String[] children = legacy.list();
+        return children != null && children.length > 0;
+    }
+
+    public boolean canRollback() {
+        if (getActiveInstallation() == null)
+            return false;
+        return getPreviousVersion() != null || hasLegacyInstallation();
+    }
+
+    /**
+     * Create an empty folder to extract a new version into.
+     * Leftovers of interrupted installs are removed first. A leftover that
+     * could not be moved out of the way is waited for, so the new version
+     * is never extracted over old files.
+     */
+    public File createStagingDirectory(String version) throws IOException {
+        File versions = getVersionsLocation(type);
+        File[] existing = versions.listFiles();
+        if (existing != null) {
+            for (File f : existing) {
+                if (f.getName().endsWith(STAGING_SUFFIX)) {
+                    CompletableFuture<Boolean> deleted = DeletionService.getDefault().delete(f);
+                    if (f.exists() && !deleted.join()) {
+                        throw new IOException("Unable to remove " + f.getAbsolutePath());
+                    }
+                }
+            }
+        }
+        File staging = new File(versions, toFolderName(version) + STAGING_SUFFIX);
+        Files.createDirectories(staging.toPath());
+        return staging;
+    }
+
+    /**
+     * Discard a staging folder after a failed install. The active version is untouched.
+     */
+    public void abort(File staging) {
+        DeletionService.getDefault().delete(staging);
+    }
+
+    /**
+     * Finish removing versions whose deletion was interrupted by a previous session
+     */
+    public void cleanup() {
+        DeletionService.getDefault().deleteTombstones(getVersionsLocation(type));
+    }
+
+    /**
+     * Move a fully extracted staging folder into place and make it the active version.
+     * The version that was active becomes the rollback version, older versions are removed.
+     */
+    public void activate(File staging, String version) throws IOException {
+        String folder = toFolderName(version);
+        File versions = getVersionsLocation(type);
+        File target = new File(versions, folder);
+        // A version that is already on disk, and may be running, is only
+        // removed once the pointer names its fresh copy
+        for (int i = 1; target.exists(); i++) {
+            target = new File(versions, folder + "-" + i);
+        }
+        move(staging.toPath(), target.toPath());
+
+        String current = readPointer(RspTypeImpl.FILE_CURRENT);
+        if (current != null && !isCopyOf(current, folder)) {
+            writePointer(RspTypeImpl.FILE_PREVIOUS, current);
+        }
+        writePointer(RspTypeImpl.FILE_CURRENT, target.getName());
+        pruneVersions();
+    }
+
+    private static boolean isCopyOf(String name, String folder) {
+        return name.matches(Pattern.quote(folder) + "(-\\d+)?");
+    }
+
+    /**
+     * Switch back to the previous version, or to the pre-versioning installation
+     */
+    public void rollback() throws IOException {
+        String current = readPointer(RspTypeImpl.FILE_CURRENT);
+        String previous = getPreviousVersion();
+        if (previous != null) {
+            writePointer(RspTypeImpl.FILE_CURRENT, previous);
+            if (current != null) {
+                writePointer(RspTypeImpl.FILE_PREVIOUS, current);
+            }
+        } else if (hasLegacyInstallation()) {
+            Files.deleteIfExists(new File(getVersionsLocation(type), RspTypeImpl.FILE_CURRENT).toPath());
+            if (current != null) {
+                writePointer(RspTypeImpl.FILE_PREVIOUS, current);
+            }
+        }
+    }
+
+    private void pruneVersions() {
+        String current = readPointer(RspTypeImpl.FILE_CURRENT);
+        String previous = readPointer(RspTypeImpl.FILE_PREVIOUS);
+        File[] all = getVersionsLocation(type).listFiles(File::isDirectory);
+        if (all == null)
+            return;
+        for (File f : all) {
+            String name = f.getName();
+            if (name.equals(current) || name.equals(previous) || name.endsWith(STAGING_SUFFIX)
+                    || DeletionService.isTombstone(f))
+                continue;
+            DeletionService.getDefault().delete(f);
+        }
+    }
+
+    private String readPointer(String name) {
+        File f = new File(getVersionsLocation(type), name);
+        if (!f.isFile())
+            return null;
+        try {
+            String s = new String(Files.readAllBytes(f.toPath()), StandardCharsets.UTF_8).trim();
+            return s.isEmpty() ? null : s;
+        } catch (IOException ioe) {
+            return null;
+        }
+    }
+
+    /*
+     * Write the new pointer next to the old one and rename it over the top,
+     * so readers see either the old or the new value, never a partial one.
+     */
+    private void writePointer(String name, String value) throws IOException {
+        File versions = getVersionsLocation(type);
+        Path tmp = new File(versions, name + ".tmp").toPath();
+        Files.write(tmp, value.getBytes(StandardCharsets.UTF_8));
+        move(tmp, new File(versions, name).toPath());
+    }
+
+    private static void move(Path from, Path to) throws IOException {
+        try {
+            Files.move(from, to, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static String toFolderName(String version) {
+        return version.trim().replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+}
@@ -0,0 +1,189 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package com.redhat.devtools.intellij.rsp.model.impl;
+
+import com.redhat.devtools.intellij.rsp.client.IntelliJRspClientLauncher;
+import com.redhat.devtools.intellij.rsp.model.IRsp;
+import com.redhat.devtools.intellij.rsp.model.IRspCore;
+import com.redhat.devtools.intellij.rsp.util.JavaUtils;
+import com.redhat.devtools.intellij.rsp.util.ReadinessProbe;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Watches the ~/.rsp/&lt;id&gt; folders for the .lock file an RSP writes
+ * while it runs, no matter which client started it. A stopped RSP whose lock
+ * file appears is connected to as soon as it listens, without this IDE
+ * becoming one of its users, so the IDE that started it can still stop it
+ * when it is done. Using it from here joins it. A started RSP whose
+ * lock file disappears and that no longer listens is marked stopped.
+ */
+public class RspLockWatcher {
+    private static final String LOCK_FILE = ".lock";
+    private static final long CONNECT_TIMEOUT = 15000;
+    private static final long MIN_DELAY = 50;
+    private static final long MAX_DELAY = 500;
+
+    private final RspCore core;
+    private final Map<WatchKey, String> keys = new ConcurrentHashMap<>();
+    private final Set<String> connecting = ConcurrentHashMap.newKeySet();
+
+    public RspLockWatcher(RspCore core) {
+        this.core = core;
+    }
+
+    /**
+     * Start watching the given RSPs and check their current lock files once
+     */
+    public void start(IRsp[] rsps) {
+        WatchService watcher;
+        try {
+            watcher = FileSystems.getDefault().newWatchService();
+        } catch(IOException ioe) {
+            return;
+        }
+        for( IRsp rsp : rsps ) {
+            String id = rsp.getRspType().getId();
+            File folder = getRspFolder(id);
+            try {
+                Files.createDirectories(folder.toPath());
+                WatchKey key = folder.toPath().register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                keys.put(key, id);
+            } catch(IOException ioe) {
+                // This RSP is only checked when it is started
+            }
+        }
+        Thread t = new Thread("RSP Lock Watcher") {
+            public void run() {
+                watch(watcher);
+            }
+        };
+        t.setDaemon(true);
+        t.start();
+        for( IRsp rsp : rsps ) {
+            lockChanged(rsp.getRspType().getId());
+        }
+    }
+
+    private void watch(WatchService watcher) {
+        while( true ) {
+            WatchKey key;
+            try {
+                key = watcher.take();
+            } catch(InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            boolean lockChanged = false;
+            for( WatchEvent<?> event : key.pollEvents()) {
+                if( event.kind() == StandardWatchEventKinds.OVERFLOW
+                        || LOCK_FILE.equals(String.valueOf(event.context())))
+                    lockChanged = true;
+            }
+            String id = keys.get(key);
+            if( !key.reset())
+                keys.remove(key);
+            if( lockChanged && id != null )
+                lockChanged(id);
+        }
+    }
+
+    private void lockChanged(String id) {
+        IRsp rsp = core.findRsp(id);
+        if( rsp == null )
+            return;
+        File lock = new File(getRspFolder(id), LOCK_FILE);
+        IRspCore.IJServerState state = rsp.getState();
+        // Starting or stopping from this IDE changes the lock file too, those states are skipped.
+        // Connecting needs a local installation, the start would report an error otherwise.
+        if( lock.isFile() && state == IRspCore.IJServerState.STOPPED && rsp.exists()) {
+            startedElsewhere(rsp, lock);
+        } else if( !lock.exists() && state == IRspCore.IJServerState.STARTED ) {
+            stoppedElsewhere(rsp);
+        }
+    }
+
+    private void startedElsewhere(IRsp rsp, File lock) {
+        String id = rsp.getRspType().getId();
+        if( !connecting.add(id))
+            return;
+        new Thread("Connect to RSP Server: " + id) {
+            public void run() {
+                try {
+                    if( waitForListening(rsp, lock) && rsp.getState() == IRspCore.IJServerState.STOPPED )
+                        core.follow(rsp);
+                } finally {
+                    connecting.remove(id);
+                }
+            }
+        }.start();
+    }
+
+    /*
+     * The lock file is written just before the RSP listens. Connecting
+     * earlier would make the start find the port free and delete the lock file.
+     */
+    private boolean waitForListening(IRsp rsp, File lock) {
+        long end = System.currentTimeMillis() + CONNECT_TIMEOUT;
+        long delay = MIN_DELAY;
+        while( System.currentTimeMillis() < end && lock.isFile()
+                && rsp.getState() == IRspCore.IJServerState.STOPPED ) {
+            int port = readPort(lock);
+            if( port > 0 && ReadinessProbe.isAcceptingConnections("localhost", port))
+                return true;
+            try {
+                Thread.sleep(delay);
+            } catch(InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            delay = Math.min(MAX_DELAY, delay * 2);
+        }
+        return false;
+    }
+
+    private void stoppedElsewhere(IRsp rsp) {
+        IntelliJRspClientLauncher client = core.findClient(rsp);
+        if( client != null && ReadinessProbe.isAcceptingConnections(client.getHost(), client.getPort()))
+            return;
+        new Thread("Disconnect from RSP Server: " + rsp.getRspType().getId()) {
+            public void run() {
+                rsp.terminate();
+            }
+        }.start();
+    }
+
+    private static int readPort(File lock) {
+        try {
+            String content = new String(Files.readAllBytes(lock.toPath()), StandardCharsets.UTF_8).trim();
+            return content.isEmpty() ? -1 : Integer.parseInt(content);
+        } catch(IOException | NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static File getRspFolder(String id) {
+        File home = new File(JavaUtils.getUserHome());
+        return new File(new File(home, RspTypeImpl.DATA_LOCATION_DEFAULT), id);
+    }
+}
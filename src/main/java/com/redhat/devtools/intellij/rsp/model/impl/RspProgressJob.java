@@ -76,6 +76,10 @@ public class RspProgressJob extends Task.Backgroundable {
     private synchronized boolean isDone() {
         return jobRemoved != null;
     }
+    public JobHandle getJobHandle() {
+        return jobHandle;
+    }
+
     public synchronized void setJobProgress(JobProgress jp) {
         this.progress = jp;
         countdown();
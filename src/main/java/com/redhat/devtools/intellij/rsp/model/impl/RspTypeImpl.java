@@ -26,8 +26,12 @@ public class RspTypeImpl implements IRspType {
     public static final String INSTALLATIONS = ".rspInstalls";
     public static final String EXPANDED = "expanded";
     public static final String DOWNLOADS = "downloads";
+    public static final String VERSIONS = "versions";
+    public static final String METADATA = "metadata";
 
     public static final String FILE_DOT_VERSION = ".distribution.version";
+    public static final String FILE_CURRENT = "current";
+    public static final String FILE_PREVIOUS = "previous";
 
 
     private final IServerIconProvider iconProvider;
@@ -81,7 +85,9 @@ public class RspTypeImpl implements IRspType {
 
     @Override
     public String getServerHome() {
-        File unzipLoc = getServerTypeInstallLocation(this);
+        File unzipLoc = new RspInstallations(this).getActiveInstallation();
+        if( unzipLoc == null )
+            unzipLoc = getServerTypeInstallLocation(this);
         if( unzipLoc.exists() && unzipLoc.listFiles().length == 1 && unzipLoc.listFiles()[0].isDirectory()) {
             return unzipLoc.listFiles()[0].getAbsolutePath();
         }
@@ -19,8 +19,10 @@ import org.jboss.tools.rsp.api.ServerManagementAPIConstants;
 import org.jboss.tools.rsp.api.dao.*;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * The model for a single RSP, including its type, client, jobs currently executing,
@@ -33,14 +35,15 @@ public class SingleRspModel {
     private List<JobProgress> jobs;
     private List<ServerState> serverState;
 
-    private HashMap<String, RemoteServerProcess> processes;
+    // In the order the processes were created
+    private Map<String, RemoteServerProcess> processes;
 
     public SingleRspModel(IRsp server) {
         this.server = server;
         this.type = server.getRspType();
         this.jobs = new ArrayList<>();
         this.serverState = new ArrayList<>();
-        this.processes = new HashMap<>();
+        this.processes = Collections.synchronizedMap(new LinkedHashMap<>());
     }
 
     public void setClient(IntelliJRspClientLauncher client) {
@@ -121,6 +124,14 @@ public class SingleRspModel {
         return null;
     }
 
+    /**
+     * Replace the servers and jobs with a snapshot fetched from the RSP
+     */
+    public void resync(List<ServerState> states, List<JobProgress> jobs) {
+        this.serverState = new ArrayList<>(states);
+        this.jobs = new ArrayList<>(jobs);
+    }
+
     public void clear() {
         this.serverState = new ArrayList<>();
         this.jobs = new ArrayList<>();
@@ -132,11 +143,20 @@ public class SingleRspModel {
         return id;
     }
     public PtyProcess addServerProcess(ServerProcess serverProcess) {
-        RemoteServerProcess sp = new RemoteServerProcess();
+        RemoteServerProcess sp = new RemoteServerProcess(serverProcess.getServer().getId());
         processes.put(internalIdForProcess(serverProcess), sp);
         return sp;
     }
 
+    /**
+     * Get the running server processes, oldest first
+     */
+    public List<RemoteServerProcess> getServerProcesses() {
+        synchronized(processes) {
+            return new ArrayList<>(processes.values());
+        }
+    }
+
     public void serverProcessTerminated(ServerProcess serverProcess) {
         String id = internalIdForProcess(serverProcess);
         RemoteServerProcess sp = processes.get(id);
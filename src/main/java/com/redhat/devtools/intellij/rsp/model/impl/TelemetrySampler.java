@@ -0,0 +1,206 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package com.redhat.devtools.intellij.rsp.model.impl;
+
+import com.redhat.devtools.intellij.rsp.model.IRsp;
+import com.redhat.devtools.intellij.rsp.model.IRspCore;
+import com.redhat.devtools.intellij.rsp.model.ProcessTelemetry;
+import com.redhat.devtools.intellij.rsp.model.RspLaunchInfo;
+import com.redhat.devtools.intellij.rsp.settings.RspSettings;
+import com.redhat.devtools.intellij.rsp.util.ProcessStats;
+import com.redhat.devtools.intellij.rsp.util.RemoteServerProcess;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples the cpu, memory and thread use of the RSP processes started by
+ * this IDE and of the server processes they launched, from /proc.
+ * The RSP does not report the pids of the servers. The child processes of
+ * the RSP are matched to the server processes in the order they started,
+ * a child only to a server process the RSP reported around or after its start.
+ * Nothing is sampled on systems without /proc.
+ */
+public class TelemetrySampler {
+    // How long to wait before looking at the settings again while sampling is off
+    private static final long DISABLED_DELAY = 10000;
+    // The RSP reports a process after starting it, and start times are only known to the second
+    private static final long START_TIME_SLACK = 2000;
+
+    private final RspCore core;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "RSP Telemetry");
+        t.setDaemon(true);
+        return t;
+    });
+    // By RSP id, and by RSP id and server id for the servers
+    private final Map<String, ProcessTelemetry> rspTelemetry = new ConcurrentHashMap<>();
+    private final Map<String, ProcessTelemetry> serverTelemetry = new ConcurrentHashMap<>();
+    // Only used on the sampler thread
+    private Map<Integer, ProcessStats.Sample> previous = new HashMap<>();
+    private long previousTime;
+
+    public TelemetrySampler(RspCore core) {
+        this.core = core;
+    }
+
+    public void start() {
+        if( ProcessStats.isSupported())
+            executor.schedule(this::tick, 0, TimeUnit.MILLISECONDS);
+    }
+
+    public ProcessTelemetry getTelemetry(IRsp rsp) {
+        return rspTelemetry.get(rsp.getRspType().getId());
+    }
+
+    public ProcessTelemetry getTelemetry(IRsp rsp, String serverId) {
+        return serverTelemetry.get(rsp.getRspType().getId() + ":" + serverId);
+    }
+
+    private void tick() {
+        RspSettings settings = RspSettings.getInstance();
+        int interval = settings == null ? RspSettings.DEFAULT_TELEMETRY_INTERVAL : settings.getTelemetryInterval();
+        if( interval <= 0 ) {
+            clear();
+            executor.schedule(this::tick, DISABLED_DELAY, TimeUnit.MILLISECONDS);
+            return;
+        }
+        try {
+            sample();
+        } finally {
+            executor.schedule(this::tick, interval, TimeUnit.SECONDS);
+        }
+    }
+
+    private void sample() {
+        long now = System.nanoTime();
+        Map<Integer, ProcessStats.Sample> current = new HashMap<>();
+        for( IRsp rsp : core.getRSPs()) {
+            String id = rsp.getRspType().getId();
+            RspLaunchInfo info = rsp.getLaunchInfo();
+            if( rsp.getState() != IRspCore.IJServerState.STARTED || info == null || info.getPid() <= 0 ) {
+                if( remove(id))
+                    core.modelUpdated(rsp);
+                continue;
+            }
+            Map<Integer, List<Integer>> children = ProcessStats.getDescendants(info.getPid());
+            boolean changed = update(rspTelemetry, id,
+                    measure(info.getPid(), Collections.singletonList(info.getPid()), current, now));
+            SingleRspModel srm = core.findModel(id);
+            List<RemoteServerProcess> processes = srm == null ? Collections.emptyList() : srm.getServerProcesses();
+            assignPids(processes, children.getOrDefault(info.getPid(), Collections.emptyList()));
+            Set<String> running = new HashSet<>();
+            for( RemoteServerProcess p : processes ) {
+                if( p.getPid() <= 0 )
+                    continue;
+                String key = id + ":" + p.getServerId();
+                running.add(key);
+                changed |= update(serverTelemetry, key,
+                        measure(p.getPid(), ProcessStats.getProcessTree(p.getPid(), children), current, now));
+            }
+            changed |= serverTelemetry.keySet().removeIf(k -> k.startsWith(id + ":") && !running.contains(k));
+            if( changed )
+                core.modelUpdated(rsp);
+        }
+        previous = current;
+        previousTime = now;
+    }
+
+    /*
+     * Server processes are created in the same order the RSP launches them.
+     * Pids are not ordered, they wrap around.
+     */
+    private static void assignPids(List<RemoteServerProcess> processes, List<Integer> childPids) {
+        Set<Integer> assigned = new HashSet<>();
+        for( RemoteServerProcess p : processes ) {
+            if( p.getPid() > 0 )
+                assigned.add(p.getPid());
+        }
+        Map<Integer, Long> started = new HashMap<>();
+        for( int pid : childPids ) {
+            long start = assigned.contains(pid) ? -1 : ProcessStats.getStartTime(pid);
+            if( start > 0 )
+                started.put(pid, start);
+        }
+        List<Integer> unassigned = new ArrayList<>(started.keySet());
+        unassigned.sort(Comparator.comparing(started::get));
+        for( RemoteServerProcess p : processes ) {
+            if( p.getPid() > 0 )
+                continue;
+            // Children that started before the process was reported belong to no one still waiting
+            unassigned.removeIf(pid -> started.get(pid) < p.getCreated() - START_TIME_SLACK);
+            if( unassigned.isEmpty())
+                return;
+            p.setPid(unassigned.remove(0));
+        }
+    }
+
+    /*
+     * Add up the use of all processes, cpu only where an earlier sample exists
+     */
+    private ProcessTelemetry measure(int pid, List<Integer> pids, Map<Integer, ProcessStats.Sample> current, long now) {
+        long ticks = 0;
+        long rss = 0;
+        int threads = 0;
+        boolean hasCpu = false;
+        for( int p : pids ) {
+            ProcessStats.Sample s = ProcessStats.sample(p);
+            if( s == null )
+                continue;
+            current.put(p, s);
+            rss += Math.max(0, s.getRssKb());
+            threads += Math.max(0, s.getThreads());
+            ProcessStats.Sample before = previous.get(p);
+            if( before != null ) {
+                ticks += s.getCpuTicks() - before.getCpuTicks();
+                hasCpu = true;
+            }
+        }
+        if( !current.containsKey(pid))
+            return null;
+        double elapsed = (now - previousTime) / 1e9;
+        double cpu = hasCpu && elapsed > 0 ? 100.0 * ticks / ProcessStats.CLOCK_TICKS_PER_SECOND / elapsed : -1;
+        return new ProcessTelemetry(pid, cpu, rss, threads);
+    }
+
+    private static boolean update(Map<String, ProcessTelemetry> map, String key, ProcessTelemetry value) {
+        ProcessTelemetry old = value == null ? map.remove(key) : map.put(key, value);
+        if( old == null || value == null )
+            return old != value;
+        // Refresh the tree only when the label changes
+        return !old.toString().equals(value.toString());
+    }
+
+    private boolean remove(String id) {
+        boolean changed = rspTelemetry.remove(id) != null;
+        changed |= serverTelemetry.keySet().removeIf(k -> k.startsWith(id + ":"));
+        return changed;
+    }
+
+    private void clear() {
+        boolean changed = !rspTelemetry.isEmpty() || !serverTelemetry.isEmpty();
+        rspTelemetry.clear();
+        serverTelemetry.clear();
+        previous = new HashMap<>();
+        if( changed )
+            core.modelUpdated(null);
+    }
+}
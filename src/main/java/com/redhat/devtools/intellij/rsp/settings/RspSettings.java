@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package com.redhat.devtools.intellij.rsp.settings;
+
+import com.intellij.openapi.components.PersistentStateComponent;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.components.State;
+import com.intellij.openapi.components.Storage;
+import com.intellij.util.xmlb.XmlSerializerUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Application wide settings of the RSP connector
+ */
+@State(name = "RspSettings", storages = @Storage("rspSettings.xml"))
+public class RspSettings implements PersistentStateComponent<RspSettings> {
+    public static final int DEFAULT_SHUTDOWN_TIMEOUT = 10;
+    public static final int DEFAULT_TERMINATE_TIMEOUT = 5;
+    public static final int DEFAULT_IDLE_TIMEOUT = 30;
+    public static final int DEFAULT_TELEMETRY_INTERVAL = 10;
+
+    /**
+     * A local folder or file:// url that mirrors the RSP distributions
+     */
+    public String mirrorLocation = "";
+    /**
+     * The id of the launch profile RSPs are started with
+     */
+    public String launchProfile = "default";
+    /**
+     * Additional vm arguments, by RSP id
+     */
+    public Map<String, String> customVmArgs = new HashMap<>();
+    /**
+     * The ids of the RSPs started when the first project opens
+     */
+    public List<String> autoStart = new ArrayList<>();
+    /**
+     * Whether an RSP that stops answering pings is restarted without asking
+     */
+    public boolean restartUnresponsive = false;
+    /**
+     * Seconds to wait for an RSP to shut down before it is terminated
+     */
+    public int shutdownTimeout = DEFAULT_SHUTDOWN_TIMEOUT;
+    /**
+     * Seconds to wait for a terminated RSP to exit before it is killed
+     */
+    public int terminateTimeout = DEFAULT_TERMINATE_TIMEOUT;
+    /**
+     * The home of the java runtime RSPs are started with, empty to pick the best one found
+     */
+    public String javaHome = "";
+    /**
+     * Minutes an RSP may be idle before it is stopped, 0 to never stop it
+     */
+    public int idleTimeout = DEFAULT_IDLE_TIMEOUT;
+    /**
+     * Whether servers that were not published to for the idle period are stopped
+     */
+    public boolean stopIdleServers = false;
+    /**
+     * Seconds between samples of the resource use of RSPs and servers, 0 to not sample
+     */
+    public int telemetryInterval = DEFAULT_TELEMETRY_INTERVAL;
+
+    public static RspSettings getInstance() {
+        return ServiceManager.getService(RspSettings.class);
+    }
+
+    @Override
+    public RspSettings getState() {
+        return this;
+    }
+
+    @Override
+    public void loadState(@NotNull RspSettings state) {
+        XmlSerializerUtil.copyBean(state, this);
+    }
+
+    public String getMirrorLocation() {
+        return mirrorLocation;
+    }
+
+    public void setMirrorLocation(String mirrorLocation) {
+        this.mirrorLocation = mirrorLocation == null ? "" : mirrorLocation.trim();
+    }
+
+    public String getLaunchProfile() {
+        return launchProfile;
+    }
+
+    public void setLaunchProfile(String launchProfile) {
+        this.launchProfile = launchProfile;
+    }
+
+    public String getCustomVmArgs(String rspId) {
+        String args = customVmArgs.get(rspId);
+        return args == null ? "" : args;
+    }
+
+    public void setCustomVmArgs(String rspId, String args) {
+        if( args == null || args.trim().isEmpty())
+            customVmArgs.remove(rspId);
+        else
+            customVmArgs.put(rspId, args.trim());
+    }
+
+    public boolean isRestartUnresponsive() {
+        return restartUnresponsive;
+    }
+
+    public void setRestartUnresponsive(boolean restartUnresponsive) {
+        this.restartUnresponsive = restartUnresponsive;
+    }
+
+    public int getShutdownTimeout() {
+        return shutdownTimeout;
+    }
+
+    public void setShutdownTimeout(int shutdownTimeout) {
+        this.shutdownTimeout = shutdownTimeout;
+    }
+
+    public int getTerminateTimeout() {
+        return terminateTimeout;
+    }
+
+    public void setTerminateTimeout(int terminateTimeout) {
+        this.terminateTimeout = terminateTimeout;
+    }
+
+    public String getJavaHome() {
+        return javaHome;
+    }
+
+    public void setJavaHome(String javaHome) {
+        this.javaHome = javaHome == null ? "" : javaHome.trim();
+    }
+
+    public int getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(int idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public boolean isStopIdleServers() {
+        return stopIdleServers;
+    }
+
+    public void setStopIdleServers(boolean stopIdleServers) {
+        this.stopIdleServers = stopIdleServers;
+    }
+
+    public int getTelemetryInterval() {
+        return telemetryInterval;
+    }
+
+    public void setTelemetryInterval(int telemetryInterval) {
+        this.telemetryInterval = telemetryInterval;
+    }
+
+    public List<String> getAutoStart() {
+        return new ArrayList<>(autoStart);
+    }
+
+    public boolean isAutoStart(String rspId) {
+        return autoStart.contains(rspId);
+    }
+
+    public void setAutoStart(String rspId, boolean start) {
+        if( start && !autoStart.contains(rspId))
+            autoStart.add(rspId);
+        else if( !start )
+            autoStart.remove(rspId);
+    }
+}
@@ -0,0 +1,207 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package com.redhat.devtools.intellij.rsp.settings;
+
+import com.intellij.openapi.fileChooser.FileChooserDescriptorFactory;
+import com.intellij.openapi.options.Configurable;
+import com.intellij.openapi.options.ConfigurationException;
+import com.intellij.openapi.ui.ComboBox;
+import com.intellij.openapi.ui.TextFieldWithBrowseButton;
+import com.redhat.devtools.intellij.rsp.download.DistributionMirror;
+import com.redhat.devtools.intellij.rsp.model.IRsp;
+import com.redhat.devtools.intellij.rsp.model.impl.LaunchProfile;
+import com.redhat.devtools.intellij.rsp.model.impl.RspCore;
+import com.redhat.devtools.intellij.rsp.util.JavaUtils;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import java.awt.*;
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The settings page of the RSP connector, under Tools
+ */
+public class RspSettingsConfigurable implements Configurable {
+    private JPanel contentPane;
+    private TextFieldWithBrowseButton mirrorField;
+    private TextFieldWithBrowseButton javaHomeField;
+    private JCheckBox restartUnresponsiveBox;
+    private JSpinner shutdownTimeoutSpinner;
+    private JSpinner terminateTimeoutSpinner;
+    private JSpinner idleTimeoutSpinner;
+    private JSpinner telemetryIntervalSpinner;
+    private JCheckBox stopIdleServersBox;
+    private ComboBox<LaunchProfile> profileBox;
+    private Map<String, JTextField> vmArgsFields;
+    private Map<String, JCheckBox> autoStartBoxes;
+
+    @Override
+    public String getDisplayName() {
+        return "Runtime Server Protocol Connector";
+    }
+
+    @Nullable
+    @Override
+    public JComponent createComponent() {
+        contentPane = new JPanel();
+        contentPane.setLayout(new BoxLayout(contentPane, BoxLayout.Y_AXIS));
+
+        contentPane.add(new JLabel("Distribution mirror (folder or file:// url):"));
+        mirrorField = new TextFieldWithBrowseButton();
+        mirrorField.addBrowseFolderListener("Distribution Mirror",
+                "Folder containing <rsp id>/LATEST and the distribution zips", null,
+                FileChooserDescriptorFactory.createSingleFolderDescriptor());
+        contentPane.add(mirrorField);
+
+        contentPane.add(new JLabel("Java runtime home (empty to use the best one found):"));
+        javaHomeField = new TextFieldWithBrowseButton();
+        javaHomeField.addBrowseFolderListener("Java Runtime",
+                "Home folder of the java runtime RSPs are started with", null,
+                FileChooserDescriptorFactory.createSingleFolderDescriptor());
+        contentPane.add(javaHomeField);
+
+        contentPane.add(new JLabel("Launch profile:"));
+        profileBox = new ComboBox<>(LaunchProfile.values());
+        contentPane.add(profileBox);
+
+        contentPane.add(new JLabel("Additional VM arguments:"));
+        JPanel vmArgsPanel = new JPanel(new GridLayout(0, 2));
+        vmArgsFields = new LinkedHashMap<>();
+        for( IRsp rsp : RspCore.getDefault().getRSPs()) {
+            JTextField field = new JTextField();
+            vmArgsPanel.add(new JLabel(rsp.getRspType().getName()));
+            vmArgsPanel.add(field);
+            vmArgsFields.put(rsp.getRspType().getId(), field);
+        }
+        contentPane.add(vmArgsPanel);
+
+        restartUnresponsiveBox = new JCheckBox("Restart RSPs that stop responding without asking");
+        contentPane.add(restartUnresponsiveBox);
+
+        JPanel timeoutsPanel = new JPanel(new GridLayout(0, 2));
+        timeoutsPanel.add(new JLabel("Seconds to wait for shutdown before terminating:"));
+        shutdownTimeoutSpinner = new JSpinner(new SpinnerNumberModel(RspSettings.DEFAULT_SHUTDOWN_TIMEOUT, 1, 600, 1));
+        timeoutsPanel.add(shutdownTimeoutSpinner);
+        timeoutsPanel.add(new JLabel("Seconds to wait for termination before killing:"));
+        terminateTimeoutSpinner = new JSpinner(new SpinnerNumberModel(RspSettings.DEFAULT_TERMINATE_TIMEOUT, 1, 600, 1));
+        timeoutsPanel.add(terminateTimeoutSpinner);
+        timeoutsPanel.add(new JLabel("Minutes idle before an RSP is stopped (0 for never):"));
+        idleTimeoutSpinner = new JSpinner(new SpinnerNumberModel(RspSettings.DEFAULT_IDLE_TIMEOUT, 0, 1440, 1));
+        timeoutsPanel.add(idleTimeoutSpinner);
+        timeoutsPanel.add(new JLabel("Seconds between resource use samples (0 for never):"));
+        telemetryIntervalSpinner = new JSpinner(new SpinnerNumberModel(RspSettings.DEFAULT_TELEMETRY_INTERVAL, 0, 3600, 1));
+        timeoutsPanel.add(telemetryIntervalSpinner);
+        contentPane.add(timeoutsPanel);
+
+        stopIdleServersBox = new JCheckBox("Also stop servers that were not published to for that time");
+        contentPane.add(stopIdleServersBox);
+
+        contentPane.add(new JLabel("Start when a project opens:"));
+        autoStartBoxes = new LinkedHashMap<>();
+        for( IRsp rsp : RspCore.getDefault().getRSPs()) {
+            JCheckBox box = new JCheckBox(rsp.getRspType().getName());
+            contentPane.add(box);
+            autoStartBoxes.put(rsp.getRspType().getId(), box);
+        }
+
+        reset();
+        return contentPane;
+    }
+
+    @Override
+    public boolean isModified() {
+        RspSettings settings = RspSettings.getInstance();
+        return !mirrorField.getText().trim().equals(settings.getMirrorLocation())
+                || !javaHomeField.getText().trim().equals(settings.getJavaHome())
+                || restartUnresponsiveBox.isSelected() != settings.isRestartUnresponsive()
+                || (Integer)shutdownTimeoutSpinner.getValue() != settings.getShutdownTimeout()
+                || (Integer)terminateTimeoutSpinner.getValue() != settings.getTerminateTimeout()
+                || (Integer)idleTimeoutSpinner.getValue() != settings.getIdleTimeout()
+                || (Integer)telemetryIntervalSpinner.getValue() != settings.getTelemetryInterval()
+                || stopIdleServersBox.isSelected() != settings.isStopIdleServers()
+                || getSelectedProfile() != LaunchProfile.fromId(settings.getLaunchProfile())
+                || vmArgsFields.entrySet().stream().anyMatch(
+                        e -> !e.getValue().getText().trim().equals(settings.getCustomVmArgs(e.getKey())))
+                || autoStartBoxes.entrySet().stream().anyMatch(
+                        e -> e.getValue().isSelected() != settings.isAutoStart(e.getKey()));
+    }
+
+    @Override
+    public void apply() throws ConfigurationException {
+        String mirror = mirrorField.getText().trim();
+        if( !mirror.isEmpty() && DistributionMirror.fromLocation(mirror) == null) {
+            throw new ConfigurationException("The distribution mirror must be a folder or a file:// url.");
+        }
+        String javaHome = javaHomeField.getText().trim();
+        if( !javaHome.isEmpty() && JavaUtils.findJavaExecutable(new File(javaHome)) == null) {
+            throw new ConfigurationException("The java runtime home must contain a java executable.");
+        }
+        RspSettings settings = RspSettings.getInstance();
+        settings.setMirrorLocation(mirror);
+        settings.setJavaHome(javaHome);
+        settings.setRestartUnresponsive(restartUnresponsiveBox.isSelected());
+        settings.setShutdownTimeout((Integer)shutdownTimeoutSpinner.getValue());
+        settings.setTerminateTimeout((Integer)terminateTimeoutSpinner.getValue());
+        settings.setIdleTimeout((Integer)idleTimeoutSpinner.getValue());
+        settings.setTelemetryInterval((Integer)telemetryIntervalSpinner.getValue());
+        settings.setStopIdleServers(stopIdleServersBox.isSelected());
+        settings.setLaunchProfile(getSelectedProfile().getId());
+        for( Map.Entry<String, JTextField> e : vmArgsFields.entrySet()) {
+            settings.setCustomVmArgs(e.getKey(), e.getValue().getText());
+        }
+        for( Map.Entry<String, JCheckBox> e : autoStartBoxes.entrySet()) {
+            settings.setAutoStart(e.getKey(), e.getValue().isSelected());
+        }
+    }
+
+    @Override
+    public void reset() {
+        RspSettings settings = RspSettings.getInstance();
+        mirrorField.setText(settings.getMirrorLocation());
+        javaHomeField.setText(settings.getJavaHome());
+        restartUnresponsiveBox.setSelected(settings.isRestartUnresponsive());
+        shutdownTimeoutSpinner.setValue(settings.getShutdownTimeout());
+        terminateTimeoutSpinner.setValue(settings.getTerminateTimeout());
+        idleTimeoutSpinner.setValue(settings.getIdleTimeout());
+        telemetryIntervalSpinner.setValue(settings.getTelemetryInterval());
+        stopIdleServersBox.setSelected(settings.isStopIdleServers());
+        profileBox.setSelectedItem(LaunchProfile.fromId(settings.getLaunchProfile()));
+        for( Map.Entry<String, JTextField> e : vmArgsFields.entrySet()) {
+            e.getValue().setText(settings.getCustomVmArgs(e.getKey()));
+        }
+        for( Map.Entry<String, JCheckBox> e : autoStartBoxes.entrySet()) {
+            e.getValue().setSelected(settings.isAutoStart(e.getKey()));
+        }
+    }
+
+    private LaunchProfile getSelectedProfile() {
+        Object selected = profileBox.getSelectedItem();
+        return selected instanceof LaunchProfile ? (LaunchProfile)selected : LaunchProfile.DEFAULT;
+    }
+
+    @Override
+    public void disposeUIResources() {
+        contentPane = null;
+        mirrorField = null;
+        javaHomeField = null;
+        restartUnresponsiveBox = null;
+        shutdownTimeoutSpinner = null;
+        terminateTimeoutSpinner = null;
+        idleTimeoutSpinner = null;
+        telemetryIntervalSpinner = null;
+        stopIdleServersBox = null;
+        profileBox = null;
+        vmArgsFields = null;
+        autoStartBoxes = null;
+    }
+}
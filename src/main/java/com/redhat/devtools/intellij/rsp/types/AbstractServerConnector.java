@@ -11,17 +11,19 @@
 package com.redhat.devtools.intellij.rsp.types;
 
 import com.intellij.openapi.util.IconLoader;
+import com.redhat.devtools.intellij.rsp.download.DistributionMirror;
 import com.redhat.devtools.intellij.rsp.model.*;
 import com.redhat.devtools.intellij.rsp.model.impl.ReferenceRspControllerImpl;
 import com.redhat.devtools.intellij.rsp.model.impl.RspTypeImpl;
-import org.apache.commons.compress.utils.IOUtils;
 
 import javax.swing.*;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
-import java.net.URL;
-import java.net.URLConnection;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.Properties;
 
 /**
@@ -54,37 +56,94 @@ public abstract class AbstractServerConnector {
         this.latestUrlKey = latestUrlKey;
     }
 
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Create the RSP from the mirrored or cached LATEST properties, or the
+     * fallback if there are none. This never waits on the network, use
+     * {@link #refreshLatest(IRsp)} to bring the latest version up to date.
+     */
     public IRsp getRsp(IRspCore core) {
+        Properties props = null;
+        File mirrored = findMirroredLatest();
+        if( mirrored != null )
+            props = loadProperties(mirrored);
+        if( props == null )
+            props = new LatestMetadataCache(id, latestPropertiesUrl).getCached();
+        return createRsp(core, props);
+    }
+
+    private IRsp createRsp(IRspCore core, Properties props) {
+        if( props != null ) {
+            String version = props.getProperty(latestVersionKey);
+            String url = props.getProperty(latestUrlKey);
+            if( version != null && url != null )
+                return getType(core).createRsp(version, url);
+        }
+        return createFallbackRsp(core);
+    }
+
+    private File findMirroredLatest() {
+        DistributionMirror mirror = DistributionMirror.getConfigured();
+        return mirror == null ? null : mirror.findLatest(id);
+    }
+
+    private static Properties loadProperties(File f) {
+        Properties props = new Properties();
+        try (InputStream in = Files.newInputStream(f.toPath())) {
+            props.load(in);
+            return props;
+        } catch(IOException ioe) {
+            return null;
+        }
+    }
+
+    /**
+     * Revalidate the cached LATEST properties with a conditional GET and
+     * update the RSP if they changed. This blocks, call it in the background.
+     */
+    public void refreshLatest(IRsp rsp) {
+        if( findMirroredLatest() != null ) {
+            // The mirror is authoritative, do not go to the network
+            return;
+        }
         try {
-            byte[] asBytes = downloadFile(latestPropertiesUrl);
-            Properties props = new Properties();
-            props.load(new ByteArrayInputStream(asBytes));
+            Properties props = new LatestMetadataCache(id, latestPropertiesUrl).revalidate();
+            if( props == null )
+                return;
             String version = props.getProperty(latestVersionKey);
             String url = props.getProperty(latestUrlKey);
-            return getType(core).createRsp(version, url);
+            if( version != null && url != null )
+                rsp.setLatestVersion(version, url);
         } catch(IOException ioe) {
-            return createFallbackRsp(core);
+            // Keep the cached or fallback version
         }
     }
 
+    /**
+     * Write LATEST properties that point at the given version and distribution.
+     * Other properties are taken over from the cached copy, if there is one.
+     */
+    public void writeLatest(File file, String version, String url) throws IOException {
+        Properties props = new LatestMetadataCache(id, latestPropertiesUrl).getCached();
+        if( props == null )
+            props = new Properties();
+        props.setProperty(latestVersionKey, version);
+        props.setProperty(latestUrlKey, url);
+        Path tmp = file.toPath().resolveSibling(file.getName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            props.store(out, null);
+        }
+        Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
     // Subclasses can override with a default hard-coded 'latest' as a fallback
     protected IRsp createFallbackRsp(IRspCore core) {
         return getType(core).createRsp();
     };
 
-    public static byte[] downloadFile(String url) throws IOException  {
-        URL url2 = new URL(url);
-        URLConnection conn = url2.openConnection();
-        conn.setConnectTimeout(5000);
-        conn.setReadTimeout(5000);
-        conn.connect();
-
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        IOUtils.copy(conn.getInputStream(), baos);
-
-        return baos.toByteArray();
-    }
-
     protected IServerIconProvider createIconProvider() {
         return new IServerIconProvider() {
             @Override
@@ -0,0 +1,156 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package com.redhat.devtools.intellij.rsp.types;
+
+import com.redhat.devtools.intellij.rsp.model.impl.RspTypeImpl;
+import org.apache.commons.compress.utils.IOUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * Keeps the last downloaded LATEST properties of an RSP in
+ * ~/.rsp/.rspInstalls/metadata, together with the ETag and Last-Modified
+ * values the server sent, so the file can be revalidated with a conditional GET.
+ */
+public class LatestMetadataCache {
+    private static final String SUFFIX_PROPERTIES = ".properties";
+    private static final String SUFFIX_VALIDATORS = ".validators";
+    private static final String KEY_ETAG = "etag";
+    private static final String KEY_LAST_MODIFIED = "last-modified";
+
+    private final String id;
+    private final String url;
+
+    public LatestMetadataCache(String id, String url) {
+        this.id = id;
+        this.url = url;
+    }
+
+    public static File getMetadataLocation() {
+        File home = new File(System.getProperty(RspTypeImpl.SYSPROP_USER_HOME));
+        File root = new File(home, RspTypeImpl.DATA_LOCATION_DEFAULT);
+        File installs = new File(root, RspTypeImpl.INSTALLATIONS);
+        return new File(installs, RspTypeImpl.METADATA);
+    }
+
+    /**
+     * Get the cached properties, or null if they were never downloaded
+     */
+    public Properties getCached() {
+        return load(getFile(SUFFIX_PROPERTIES));
+    }
+
+    /**
+     * Ask the server whether the properties changed since they were cached.
+     *
+     * @return the new properties, or null if the cached copy is still current
+     */
+    public Properties revalidate() throws IOException {
+        Properties validators = getCached() == null ? null : load(getFile(SUFFIX_VALIDATORS));
+        URLConnection conn = new URL(url).openConnection();
+        conn.setConnectTimeout(5000);
+        conn.setReadTimeout(5000);
+        if (validators != null) {
+            String etag = validators.getProperty(KEY_ETAG);
+            String lastModified = validators.getProperty(KEY_LAST_MODIFIED);
+            if (etag != null)
+                conn.setRequestProperty("If-None-Match", etag);
+            if (lastModified != null)
+                conn.setRequestProperty("If-Modified-Since", lastModified);
+        }
+        conn.connect();
+        try {
+            if (conn instanceof HttpURLConnection) {
+                int code = ((HttpURLConnection) conn).getResponseCode();
+                if (code == HttpURLConnection.HTTP_NOT_MODIFIED)
+                    return null;
+                if (code != HttpURLConnection.HTTP_OK)
+                    throw new IOException("Unable to download " + url + ": HTTP " + code);
+            }
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            try (InputStream in = conn.getInputStream()) {
+                IOUtils.copy(in, baos);
+            }
+            byte[] asBytes = baos.toByteArray();
+            Properties props = new Properties();
+            props.load(new ByteArrayInputStream(asBytes));
+
+            Properties newValidators = new Properties();
+            String etag = conn.getHeaderField("ETag");
+            String lastModified = conn.getHeaderField("Last-Modified");
+            if (etag != null)
+                newValidators.setProperty(KEY_ETAG, etag);
+            if (lastModified != null)
+                newValidators.setProperty(KEY_LAST_MODIFIED, lastModified);
+            store(asBytes, newValidators);
+            return props;
+        } finally {
+            if (conn instanceof HttpURLConnection)
+                ((HttpURLConnection) conn).disconnect();
+        }
+    }
+
+    private void store(byte[] properties, Properties validators) {
+        try {
+            Files.createDirectories(getMetadataLocation().toPath());
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            validators.store(baos, null);
+            // Validators last, and the old ones gone first, so they never vouch for
+            // other properties. A crash in between only costs one full download.
+            Files.deleteIfExists(getFile(SUFFIX_VALIDATORS).toPath());
+            write(getFile(SUFFIX_PROPERTIES).toPath(), properties);
+            write(getFile(SUFFIX_VALIDATORS).toPath(), baos.toByteArray());
+        } catch (IOException ioe) {
+            // The cache is only an optimization
+        }
+    }
+
+    private static void write(Path target, byte[] content) throws IOException {
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            out.write(content);
+        }
+        try {
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static Properties load(File f) {
+        if (!f.isFile())
+            return null;
+        Properties props = new Properties();
+        try (InputStream in = Files.newInputStream(f.toPath())) {
+            props.load(in);
+            return props;
+        } catch (IOException ioe) {
+            return null;
+        }
+    }
+
+    private File getFile(String suffix) {
+        return new File(getMetadataLocation(), id + suffix);
+    }
+}
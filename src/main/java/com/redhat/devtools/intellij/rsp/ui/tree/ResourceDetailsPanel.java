@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package com.redhat.devtools.intellij.rsp.ui.tree;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.ui.HideableDecorator;
+import com.intellij.ui.treeStructure.Tree;
+import com.redhat.devtools.intellij.rsp.model.IRsp;
+import com.redhat.devtools.intellij.rsp.model.IRspCore;
+import com.redhat.devtools.intellij.rsp.model.IRspCoreChangeListener;
+import com.redhat.devtools.intellij.rsp.model.ProcessTelemetry;
+import org.jboss.tools.rsp.api.dao.ServerState;
+
+import javax.swing.*;
+import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.TreePath;
+import java.awt.*;
+
+/**
+ * A collapsible panel below the tree listing the resource use of the
+ * selected RSP and its servers, or of all running RSPs if nothing is selected.
+ * It listens to the model until disposed.
+ */
+public class ResourceDetailsPanel extends JPanel implements Disposable {
+    private final IRspCore core;
+    private final Tree tree;
+    private final JTextArea text;
+    private final IRspCoreChangeListener listener = o -> ApplicationManager.getApplication().invokeLater(this::refresh);
+
+    public ResourceDetailsPanel(IRspCore core, Tree tree) {
+        super(new BorderLayout());
+        this.core = core;
+        this.tree = tree;
+        this.text = new JTextArea();
+        text.setEditable(false);
+        text.setOpaque(false);
+        JPanel content = new JPanel(new BorderLayout());
+        content.add(text, BorderLayout.CENTER);
+        HideableDecorator decorator = new HideableDecorator(this, "Resource Use", false);
+        decorator.setContentComponent(content);
+        decorator.setOn(false);
+        tree.addTreeSelectionListener(e -> refresh());
+        core.addChangeListener(listener);
+        refresh();
+    }
+
+    @Override
+    public void dispose() {
+        core.removeChangeListener(listener);
+    }
+
+    private void refresh() {
+        IRsp selected = getSelectedRsp();
+        StringBuilder sb = new StringBuilder();
+        for( IRsp rsp : selected == null ? core.getRSPs() : new IRsp[] {selected}) {
+            if( rsp.getState() == IRspCore.IJServerState.STARTED )
+                append(sb, rsp);
+        }
+        text.setText(sb.length() == 0 ? "No resource use known" : sb.toString().trim());
+    }
+
+    private void append(StringBuilder sb, IRsp rsp) {
+        ProcessTelemetry rspTelemetry = core.getTelemetry(rsp);
+        sb.append(rsp.getRspType().getName());
+        appendTelemetry(sb, rspTelemetry);
+        for( ServerState ss : core.getServersInRsp(rsp)) {
+            ProcessTelemetry t = core.getTelemetry(rsp, ss.getServer().getId());
+            if( t != null ) {
+                sb.append("    ").append(ss.getServer().getId());
+                appendTelemetry(sb, t);
+            }
+        }
+    }
+
+    private static void appendTelemetry(StringBuilder sb, ProcessTelemetry t) {
+        if( t == null ) {
+            sb.append(": not known\n");
+        } else {
+            sb.append(" (pid ").append(t.getPid()).append("): ").append(t).append("\n");
+        }
+    }
+
+    private IRsp getSelectedRsp() {
+        TreePath path = tree.getSelectionPath();
+        if( path == null || !(path.getLastPathComponent() instanceof DefaultMutableTreeNode))
+            return null;
+        Object o = ((DefaultMutableTreeNode)path.getLastPathComponent()).getUserObject();
+        if( o instanceof RspTreeModel.Descriptor )
+            o = ((RspTreeModel.Descriptor)o).getElement();
+        if( o instanceof IRsp )
+            return (IRsp)o;
+        if( o instanceof RspTreeModel.ServerStateWrapper )
+            return ((RspTreeModel.ServerStateWrapper)o).getRsp();
+        if( o instanceof RspTreeModel.DeployableStateWrapper )
+            return ((RspTreeModel.DeployableStateWrapper)o).getServerState().getRsp();
+        return null;
+    }
+}
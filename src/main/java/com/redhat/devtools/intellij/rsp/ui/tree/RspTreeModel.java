@@ -17,6 +17,10 @@ import com.intellij.ide.util.treeView.NodeDescriptor;
 import com.intellij.ide.util.treeView.PresentableNodeDescriptor;
 import com.intellij.openapi.util.IconLoader;
 import com.redhat.devtools.intellij.rsp.model.IRsp;
+import com.redhat.devtools.intellij.rsp.model.IRspCore;
+import com.redhat.devtools.intellij.rsp.model.LatencyHistogram;
+import com.redhat.devtools.intellij.rsp.model.ProcessTelemetry;
+import com.redhat.devtools.intellij.rsp.model.RspLaunchInfo;
 import com.redhat.devtools.intellij.rsp.model.impl.RspCore;
 import org.jboss.tools.rsp.api.ServerManagementAPIConstants;
 import org.jboss.tools.rsp.api.dao.DeployableState;
@@ -162,8 +166,22 @@ public class RspTreeModel extends AbstractTreeStructure {
         }
     }
 
-    private static String getRspString(IRsp element) {
-        return element.getRspType().getName() + "   [" + getRspState(element) + "]";
+    private String getRspString(IRsp element) {
+        String ret = element.getRspType().getName() + "   [" + getRspState(element) + "]";
+        if( core.isStoppedWhileIdle(element))
+            return ret + "   (stopped while idle)";
+        if( element.getState() != IRspCore.IJServerState.STARTED)
+            return ret;
+        RspLaunchInfo info = element.getLaunchInfo();
+        if( info != null )
+            ret += "   (" + info + ")";
+        LatencyHistogram latency = core.getLatency(element);
+        if( latency != null )
+            ret += "   (" + latency + ")";
+        ProcessTelemetry telemetry = core.getTelemetry(element);
+        if( telemetry != null )
+            ret += "   (" + telemetry + ")";
+        return ret;
     }
     private class ServerStateDescriptor extends Descriptor<ServerStateWrapper> {
         protected ServerStateDescriptor(ServerStateWrapper element, @Nullable NodeDescriptor parentDescriptor) {
@@ -173,10 +191,14 @@ public class RspTreeModel extends AbstractTreeStructure {
         }
     }
 
-    private static String getServerStateString(ServerStateWrapper element) {
-        return element.ss.getServer().getId() + "   [" +
+    private String getServerStateString(ServerStateWrapper element) {
+        String ret = element.ss.getServer().getId() + "   [" +
                 getRunStateString(element.ss.getState()) + ", " +
                 getPublishStateString(element.ss.getPublishState()) + "]";
+        ProcessTelemetry telemetry = core.getTelemetry(element.rsp, element.ss.getServer().getId());
+        if( telemetry != null )
+            ret += "   (" + telemetry + ")";
+        return ret;
     }
 
     private class DeployableStateDescriptor extends Descriptor<DeployableStateWrapper> {
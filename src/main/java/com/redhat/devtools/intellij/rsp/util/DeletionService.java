@@ -0,0 +1,197 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package com.redhat.devtools.intellij.rsp.util;
+
+import com.intellij.notification.Notification;
+import com.intellij.notification.NotificationType;
+import com.intellij.notification.Notifications;
+import com.redhat.devtools.intellij.rsp.editor.EditServerListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Deletes large folders, like old RSP installations, without making the caller wait.
+ * The folder is first renamed to a tombstone next to it, so it is gone from
+ * its original location immediately. The tombstone is then deleted in the
+ * background, with the files removed in parallel. Tombstones left behind
+ * by an IDE that exited early are removed with {@link #deleteTombstones(File)}.
+ */
+public class DeletionService {
+    private static final String TOMBSTONE_PREFIX = ".deleted-";
+    private static final int BATCH_SIZE = 256;
+    private static final int MAX_THREADS = 4;
+
+    private static DeletionService instance = new DeletionService();
+    public static DeletionService getDefault() {
+        return instance;
+    }
+
+    private final ExecutorService coordinator;
+    private final ExecutorService workers;
+
+    private DeletionService() {
+        coordinator = Executors.newSingleThreadExecutor(new DeletionThreadFactory("Delete folders"));
+        int threads = Math.max(1, Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors()));
+        workers = Executors.newFixedThreadPool(threads, new DeletionThreadFactory("Delete files"));
+    }
+
+    /**
+     * Remove a folder. When the folder can be renamed it no longer exists at
+     * its original path once this method returns.
+     *
+     * @return completes with true once everything was deleted
+     */
+    public CompletableFuture<Boolean> delete(File folder) {
+        if (!folder.exists()) {
+            return CompletableFuture.completedFuture(true);
+        }
+        File toDelete = folder;
+        File tombstone = new File(folder.getParentFile(), TOMBSTONE_PREFIX + folder.getName() + "-" + System.nanoTime());
+        if (folder.renameTo(tombstone)) {
+            toDelete = tombstone;
+        }
+        final File target = toDelete;
+        return CompletableFuture.supplyAsync(() -> deleteNow(target, folder), coordinator);
+    }
+
+    public static boolean isTombstone(File f) {
+        return f.getName().startsWith(TOMBSTONE_PREFIX);
+    }
+
+    /**
+     * Delete the tombstones a previous session did not finish removing
+     */
+    public void deleteTombstones(File parent) {
+        File[] tombstones = parent.listFiles(DeletionService::isTombstone);
+        if (tombstones == null) {
+            return;
+        }
+        for (File tombstone : tombstones) {
+            CompletableFuture.supplyAsync(() -> deleteNow(tombstone, tombstone), coordinator);
+        }
+    }
+
+    /*
+     * Files are handed to the workers in batches while the tree is walked.
+     * Folders are removed last, deepest first, once their files are gone.
+     */
+    private boolean deleteNow(File target, File original) {
+        List<Path> directories = new ArrayList<>();
+        List<Future<Integer>> results = new ArrayList<>();
+        int failures = 0;
+        try {
+            Files.walkFileTree(target.toPath(), new SimpleFileVisitor<Path>() {
+                private List<Path> batch = new ArrayList<>();
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    batch.add(file);
+                    if (batch.size() >= BATCH_SIZE) {
+                        submit();
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+                    directories.add(dir);
+                    if (dir.equals(target.toPath())) {
+                        submit();
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                private void submit() {
+                    if (!batch.isEmpty()) {
+                        results.add(workers.submit(deleteFiles(batch)));
+                        batch = new ArrayList<>();
+                    }
+                }
+            });
+        } catch (IOException ioe) {
+            failures++;
+        }
+        for (Future<Integer> result : results) {
+            try {
+                failures += result.get();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (ExecutionException ee) {
+                failures++;
+            }
+        }
+        for (Path dir : directories) {
+            try {
+                Files.deleteIfExists(dir);
+            } catch (IOException ioe) {
+                failures++;
+            }
+        }
+        if (failures > 0) {
+            reportFailure(original, failures);
+            return false;
+        }
+        return true;
+    }
+
+    private static Callable<Integer> deleteFiles(List<Path> files) {
+        return () -> {
+            int failures = 0;
+            for (Path file : files) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException ioe) {
+                    failures++;
+                }
+            }
+            return failures;
+        };
+    }
+
+    private void reportFailure(File folder, int failures) {
+        Notification notification = new Notification(EditServerListener.NOTIFICATION_ID, "Unable to delete folder",
+                failures + " file(s) could not be deleted from " + folder.getAbsolutePath(), NotificationType.WARNING);
+        Notifications.Bus.notify(notification);
+    }
+
+    private static class DeletionThreadFactory implements ThreadFactory {
+        private final String name;
+        private final AtomicInteger count = new AtomicInteger();
+
+        DeletionThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, name + " " + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
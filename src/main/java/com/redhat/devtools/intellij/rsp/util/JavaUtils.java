@@ -11,7 +11,11 @@
 package com.redhat.devtools.intellij.rsp.util;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
 import java.util.Locale;
+import java.util.Properties;
 
 /**
  * Find the java executable on the user's hard drive at expected locations
@@ -50,6 +54,70 @@ public class JavaUtils {
         return null;
     }
 
+    /**
+     * Get the installation folder of a java executable, for example /usr/lib/jvm/jdk-11
+     * for /usr/lib/jvm/jdk-11/bin/java, or the parent jdk of a nested jre.
+     */
+    public static File getJavaHome(File javaExecutable) {
+        File home = javaExecutable.getAbsoluteFile().getParentFile().getParentFile();
+        if( home != null && JRE.equals(home.getName()) && !new File(home, "release").isFile()
+                && new File(home.getParentFile(), "release").isFile())
+            return home.getParentFile();
+        return home;
+    }
+
+    /**
+     * Get the version of a java installation as written in its release file,
+     * for example "1.8.0_252" or "11.0.7".
+     * @return the version, or <code>null</code> if the installation has no readable release file
+     */
+    public static String getJavaVersion(File javaHome) {
+        Properties release = readRelease(javaHome);
+        return release == null ? null : release.getProperty("JAVA_VERSION");
+    }
+
+    /**
+     * Read the release file of a java installation, with the quotes around the values removed
+     * @return the properties, or <code>null</code> if the installation has no readable release file
+     */
+    public static Properties readRelease(File javaHome) {
+        File release = new File(javaHome, "release");
+        if( !release.isFile())
+            return null;
+        Properties props = new Properties();
+        try (InputStream in = Files.newInputStream(release.toPath())) {
+            props.load(in);
+        } catch(IOException ioe) {
+            return null;
+        }
+        for( String key : props.stringPropertyNames()) {
+            String value = props.getProperty(key).trim();
+            if( value.length() > 1 && value.startsWith("\"") && value.endsWith("\""))
+                value = value.substring(1, value.length() - 1);
+            props.setProperty(key, value);
+        }
+        return props;
+    }
+
+    /**
+     * Get the major version of a java version string, for example 8 for "1.8.0_252"
+     * and 11 for "11.0.7".
+     * @return the major version, or -1 if it cannot be parsed
+     */
+    public static int getMajorVersion(String javaVersion) {
+        if( javaVersion == null )
+            return -1;
+        String v = javaVersion.startsWith("1.") ? javaVersion.substring(2) : javaVersion;
+        int end = 0;
+        while( end < v.length() && Character.isDigit(v.charAt(end)))
+            end++;
+        try {
+            return Integer.parseInt(v.substring(0, end));
+        } catch(NumberFormatException nfe) {
+            return -1;
+        }
+    }
+
     private static String OS = System.getProperty("os.name", "unknown").toLowerCase(Locale.ROOT);
 
     public static boolean isWindows() {
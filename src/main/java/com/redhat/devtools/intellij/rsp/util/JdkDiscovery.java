@@ -0,0 +1,314 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package com.redhat.devtools.intellij.rsp.util;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.projectRoots.ProjectJdkTable;
+import com.intellij.openapi.projectRoots.Sdk;
+import com.intellij.openapi.util.Computable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Finds the java runtimes on this machine: the JDKs configured in the IDE,
+ * JAVA_HOME, the IDE's own runtime and the usual install folders.
+ * The folders are scanned once per session. The version and vendor of each
+ * runtime are cached in ~/.rsp/.rspInstalls/jdks.properties and only read
+ * again when its release file changed.
+ */
+public class JdkDiscovery {
+    private static final String CACHE_FILE = "jdks.properties";
+    private static final int MIN_VERSION = 8;
+    // The newest release the RSP is tested on, newer ones are only used if nothing else is found
+    private static final int MAX_VERSION = 21;
+
+    /**
+     * A java installation
+     */
+    public static class JavaRuntime {
+        private final File home;
+        private final File java;
+        private final String version;
+        private final String vendor;
+
+        private JavaRuntime(File home, File java, String version, String vendor) {
+            this.home = home;
+            this.java = java;
+            this.version = version;
+            this.vendor = vendor;
+        }
+
+        public File getHome() {
+            return home;
+        }
+
+        public File getJavaExecutable() {
+            return java;
+        }
+
+        public String getVersion() {
+            return version;
+        }
+
+        public String getVendor() {
+            return vendor;
+        }
+
+        public int getMajorVersion() {
+            return JavaUtils.getMajorVersion(version);
+        }
+
+        @Override
+        public String toString() {
+            return (vendor == null ? "" : vendor + " ") + version + " (" + home.getAbsolutePath() + ")";
+        }
+    }
+
+    private static JdkDiscovery instance = new JdkDiscovery();
+    public static JdkDiscovery getDefault() {
+        return instance;
+    }
+
+    private List<JavaRuntime> runtimes;
+
+    /**
+     * Get all java runtimes found, the preferred one first
+     */
+    public synchronized List<JavaRuntime> getRuntimes() {
+        if( runtimes == null )
+            runtimes = scan();
+        return runtimes;
+    }
+
+    /**
+     * Scan again on the next request, for example after JDKs were added to the IDE
+     */
+    public synchronized void rescan() {
+        runtimes = null;
+    }
+
+    /**
+     * Get the runtime to start RSPs with
+     * @param pinnedHome the home of a runtime chosen by the user, may be null or empty
+     * @return the pinned runtime if it is usable, otherwise the preferred supported one, or null if none was found
+     */
+    public JavaRuntime getPreferred(String pinnedHome) {
+        if( pinnedHome != null && !pinnedHome.trim().isEmpty()) {
+            JavaRuntime pinned = probe(new File(pinnedHome.trim()), new Properties());
+            if( pinned != null )
+                return pinned;
+        }
+        List<JavaRuntime> all = getRuntimes();
+        return all.isEmpty() || all.get(0).getMajorVersion() < MIN_VERSION ? null : all.get(0);
+    }
+
+    private List<JavaRuntime> scan() {
+        Properties cache = loadCache();
+        Properties before = new Properties();
+        before.putAll(cache);
+        List<JavaRuntime> found = new ArrayList<>();
+        Set<File> seen = new LinkedHashSet<>();
+        for( File home : getCandidates()) {
+            File canonical;
+            try {
+                canonical = home.getCanonicalFile();
+            } catch(IOException ioe) {
+                continue;
+            }
+            if( !seen.add(canonical))
+                continue;
+            JavaRuntime runtime = probe(canonical, cache);
+            if( runtime != null )
+                found.add(runtime);
+        }
+        found.sort(PREFERENCE);
+        if( !cache.equals(before))
+            storeCache(cache);
+        return Collections.unmodifiableList(found);
+    }
+
+    /*
+     * Newest long term support release the RSP is tested on first: they get
+     * the most performance work. Then the newest other tested release, then
+     * releases newer than tested and last those too old to run the RSP.
+     */
+    private static final Comparator<JavaRuntime> PREFERENCE = (a, b) -> {
+        int aRank = getSupportRank(a.getMajorVersion());
+        int bRank = getSupportRank(b.getMajorVersion());
+        if( aRank != bRank )
+            return Integer.compare(aRank, bRank);
+        boolean aLts = isLongTermSupport(a.getMajorVersion());
+        boolean bLts = isLongTermSupport(b.getMajorVersion());
+        if( aLts != bLts )
+            return aLts ? -1 : 1;
+        return compareVersions(b.getVersion(), a.getVersion());
+    };
+
+    private static int getSupportRank(int major) {
+        if( major < MIN_VERSION )
+            return 2;
+        return major > MAX_VERSION ? 1 : 0;
+    }
+
+    private static boolean isLongTermSupport(int major) {
+        return major == 8 || major == 11 || (major >= 17 && (major - 17) % 4 == 0);
+    }
+
+    private static int compareVersions(String a, String b) {
+        String[] as = a.replace("1.8.0_", "8.0.").split("[^0-9]+");
+        String[] bs = b.replace("1.8.0_", "8.0.").split("[^0-9]+");
+        for( int i = 0; i < Math.max(as.length, bs.length); i++ ) {
+            int x = i < as.length ? parse(as[i]) : 0;
+            int y = i < bs.length ? parse(bs[i]) : 0;
+            if( x != y )
+                return Integer.compare(x, y);
+        }
+        return 0;
+    }
+
+    private static int parse(String s) {
+        try {
+            return s.isEmpty() ? 0 : Integer.parseInt(s);
+        } catch(NumberFormatException nfe) {
+            return 0;
+        }
+    }
+
+    /*
+     * Get version and vendor from the cache if the release file is unchanged
+     */
+    private static JavaRuntime probe(File home, Properties cache) {
+        File java = JavaUtils.findJavaExecutable(home);
+        if( java == null )
+            return null;
+        File release = new File(home, "release");
+        String key = home.getAbsolutePath();
+        String stamp = Long.toString(release.lastModified());
+        String cached = cache.getProperty(key);
+        if( cached != null ) {
+            String[] parts = cached.split("\\|", 3);
+            if( parts.length == 3 && parts[0].equals(stamp))
+                return new JavaRuntime(home, java, parts[1], parts[2].isEmpty() ? null : parts[2]);
+        }
+        Properties props = JavaUtils.readRelease(home);
+        String version = props == null ? null : props.getProperty("JAVA_VERSION");
+        String vendor = props == null ? null : props.getProperty("IMPLEMENTOR");
+        if( version == null && isRunningRuntime(home)) {
+            version = System.getProperty("java.version");
+            vendor = System.getProperty("java.vendor");
+        }
+        if( version == null )
+            return null;
+        cache.setProperty(key, stamp + "|" + version + "|" + (vendor == null ? "" : vendor));
+        return new JavaRuntime(home, java, version, vendor);
+    }
+
+    private static boolean isRunningRuntime(File home) {
+        try {
+            return home.getCanonicalFile().equals(new File(System.getProperty("java.home")).getCanonicalFile());
+        } catch(IOException ioe) {
+            return false;
+        }
+    }
+
+    private static List<File> getCandidates() {
+        List<File> ret = new ArrayList<>();
+        addIdeJdks(ret);
+        String javaHome = System.getenv("JAVA_HOME");
+        if( javaHome != null && !javaHome.isEmpty())
+            ret.add(new File(javaHome));
+        ret.add(new File(System.getProperty("java.home")));
+
+        String userHome = JavaUtils.getUserHome();
+        addChildren(ret, new File(userHome, ".jdks"), null);
+        addChildren(ret, new File(userHome, ".sdkman/candidates/java"), null);
+        if( JavaUtils.isMac()) {
+            addChildren(ret, new File("/Library/Java/JavaVirtualMachines"), "Contents/Home");
+            addChildren(ret, new File(userHome, "Library/Java/JavaVirtualMachines"), "Contents/Home");
+        } else if( JavaUtils.isWindows()) {
+            String programFiles = System.getenv("ProgramFiles");
+            if( programFiles != null ) {
+                for( String vendor : new String[]{"Java", "AdoptOpenJDK", "Eclipse Adoptium", "Zulu", "Amazon Corretto", "RedHat"}) {
+                    addChildren(ret, new File(programFiles, vendor), null);
+                }
+            }
+        } else {
+            addChildren(ret, new File("/usr/lib/jvm"), null);
+            addChildren(ret, new File("/usr/java"), null);
+            addChildren(ret, new File("/opt/java"), null);
+        }
+        return ret;
+    }
+
+    private static void addIdeJdks(List<File> ret) {
+        try {
+            Sdk[] sdks = ApplicationManager.getApplication().runReadAction(
+                    (Computable<Sdk[]>) () -> ProjectJdkTable.getInstance().getAllJdks());
+            for( Sdk sdk : sdks ) {
+                if( sdk.getHomePath() != null )
+                    ret.add(new File(sdk.getHomePath()));
+            }
+        } catch(RuntimeException re) {
+            // No IDE JDKs, the other locations are still scanned
+        }
+    }
+
+    private static void addChildren(List<File> ret, File folder, String suffix) {
+        File[] children = folder.listFiles(File::isDirectory);
+        if( children == null )
+            return;
+        for( File child : children ) {
+            ret.add(suffix == null ? child : new File(child, suffix));
+        }
+    }
+
+    private static File getCacheFile() {
+        File home = new File(JavaUtils.getUserHome());
+        File root = new File(home, ".rsp");
+        return new File(new File(root, ".rspInstalls"), CACHE_FILE);
+    }
+
+    private static Properties loadCache() {
+        Properties props = new Properties();
+        File f = getCacheFile();
+        if( f.isFile()) {
+            try (InputStream in = Files.newInputStream(f.toPath())) {
+                props.load(in);
+            } catch(IOException ioe) {
+                // Everything gets probed again
+            }
+        }
+        return props;
+    }
+
+    private static void storeCache(Properties cache) {
+        File f = getCacheFile();
+        try {
+            Files.createDirectories(f.getParentFile().toPath());
+            try (OutputStream out = Files.newOutputStream(f.toPath())) {
+                cache.store(out, null);
+            }
+        } catch(IOException ioe) {
+            // Only costs a probe next time
+        }
+    }
+}
@@ -0,0 +1,288 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package com.redhat.devtools.intellij.rsp.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads resource usage of a process from /proc.
+ * Values are only available on Linux, elsewhere -1 or null is returned.
+ */
+public class ProcessStats {
+    /**
+     * The unit of the cpu times in /proc/&lt;pid&gt;/stat. It is 100 on all
+     * common Linux builds and can only be asked for through native code.
+     */
+    public static final long CLOCK_TICKS_PER_SECOND = 100;
+
+    private static final String VM_RSS = "VmRSS:";
+    private static final String THREADS = "Threads:";
+    // Fields of /proc/<pid>/stat after the command name, counted from 0
+    private static final int STAT_PPID = 1;
+    private static final int STAT_UTIME = 11;
+    private static final int STAT_STIME = 12;
+    private static final int STAT_STARTTIME = 19;
+    private static final String BTIME = "btime ";
+
+    // Read once, they do not change while the system runs
+    private static volatile long bootTime = -1;
+    private static volatile Boolean childrenFiles;
+
+    /**
+     * The resource usage of a process at one point in time
+     */
+    public static class Sample {
+        private final int pid;
+        private final long cpuTicks;
+        private final long rssKb;
+        private final int threads;
+
+        private Sample(int pid, long cpuTicks, long rssKb, int threads) {
+            this.pid = pid;
+            this.cpuTicks = cpuTicks;
+            this.rssKb = rssKb;
+            this.threads = threads;
+        }
+
+        public int getPid() {
+            return pid;
+        }
+
+        /**
+         * The user and system cpu time used so far, in {@link #CLOCK_TICKS_PER_SECOND}
+         */
+        public long getCpuTicks() {
+            return cpuTicks;
+        }
+
+        public long getRssKb() {
+            return rssKb;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+    }
+
+    public static boolean isSupported() {
+        return new File("/proc/self/stat").isFile();
+    }
+
+    /**
+     * Get the resident set size of a process in kilobytes, or -1 if unknown
+     */
+    public static long getRssKb(int pid) {
+        List<String> status = readLines(pid, "status");
+        return status == null ? -1 : getStatusValue(status, VM_RSS);
+    }
+
+    /**
+     * Sample the cpu time, resident set size and thread count of a process
+     * @return the sample, or null if the process does not exist or /proc is not available
+     */
+    public static Sample sample(int pid) {
+        String[] stat = readStat(pid);
+        List<String> status = readLines(pid, "status");
+        if( stat == null || status == null || stat.length <= STAT_STIME )
+            return null;
+        try {
+            long ticks = Long.parseLong(stat[STAT_UTIME]) + Long.parseLong(stat[STAT_STIME]);
+            return new Sample(pid, ticks, getStatusValue(status, VM_RSS), (int)getStatusValue(status, THREADS));
+        } catch(NumberFormatException nfe) {
+            return null;
+        }
+    }
+
+    /**
+     * Get the time a process started, in milliseconds since the epoch.
+     * The boot time it is computed from is only known to the second.
+     * @return the start time, or -1 if the process does not exist or /proc is not available
+     */
+    public static long getStartTime(int pid) {
+        String[] stat = readStat(pid);
+        long boot = getBootTime();
+        if( stat == null || stat.length <= STAT_STARTTIME || boot < 0 )
+            return -1;
+        try {
+            return boot + Long.parseLong(stat[STAT_STARTTIME]) * 1000 / CLOCK_TICKS_PER_SECOND;
+        } catch(NumberFormatException nfe) {
+            return -1;
+        }
+    }
+
+    /**
+     * Get the descendants of a process, by parent pid. Only the children files
+     * of the process tree are read, kernels without them are handled by reading
+     * the parent of every process.
+     */
+    public static Map<Integer, List<Integer>> getDescendants(int pid) {
+        Map<Integer, List<Integer>> all = hasChildrenFiles() ? null : getAllChildren();
+        Map<Integer, List<Integer>> ret = new HashMap<>();
+        List<Integer> todo = new ArrayList<>();
+        todo.add(pid);
+        for( int i = 0; i < todo.size(); i++ ) {
+            int parent = todo.get(i);
+            List<Integer> c = all == null ? readChildren(parent) : all.get(parent);
+            if( c != null && !c.isEmpty()) {
+                ret.put(parent, c);
+                todo.addAll(c);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Get a process and all its descendants
+     * @param children the result of {@link #getDescendants(int)} for the process or one of its ancestors
+     */
+    public static List<Integer> getProcessTree(int pid, Map<Integer, List<Integer>> children) {
+        List<Integer> ret = new ArrayList<>();
+        ret.add(pid);
+        for( int i = 0; i < ret.size(); i++ ) {
+            List<Integer> c = children.get(ret.get(i));
+            if( c != null )
+                ret.addAll(c);
+        }
+        return ret;
+    }
+
+    /*
+     * The children of every thread of the process, a child belongs to the thread that started it
+     */
+    private static List<Integer> readChildren(int pid) {
+        List<Integer> ret = new ArrayList<>();
+        File[] tasks = new File("/proc/" + pid + "/task").listFiles();
+        if( tasks == null )
+            return ret;
+        for( File task : tasks ) {
+            try {
+                String content = new String(Files.readAllBytes(new File(task, "children").toPath()),
+                        StandardCharsets.UTF_8).trim();
+                for( String child : content.isEmpty() ? new String[0] : content.split("\\s+"))
+                    ret.add(Integer.parseInt(child));
+            } catch(IOException | NumberFormatException e) {
+                // The thread or process exited
+            }
+        }
+        return ret;
+    }
+
+    private static boolean hasChildrenFiles() {
+        Boolean ret = childrenFiles;
+        if( ret == null ) {
+            File[] tasks = new File("/proc/self/task").listFiles();
+            ret = tasks != null && tasks.length > 0 && new File(tasks[0], "children").isFile();
+            childrenFiles = ret;
+        }
+        return ret;
+    }
+
+    /*
+     * The child processes of all processes, by parent pid
+     */
+    private static Map<Integer, List<Integer>> getAllChildren() {
+        Map<Integer, List<Integer>> ret = new HashMap<>();
+        File[] all = new File("/proc").listFiles((dir, name) -> !name.isEmpty() && Character.isDigit(name.charAt(0)));
+        if( all == null )
+            return ret;
+        for( File f : all ) {
+            int pid;
+            try {
+                pid = Integer.parseInt(f.getName());
+            } catch(NumberFormatException nfe) {
+                continue;
+            }
+            String[] stat = readStat(pid);
+            if( stat == null || stat.length <= STAT_PPID )
+                continue;
+            try {
+                int ppid = Integer.parseInt(stat[STAT_PPID]);
+                ret.computeIfAbsent(ppid, k -> new ArrayList<>()).add(pid);
+            } catch(NumberFormatException nfe) {
+                // Skip it
+            }
+        }
+        return ret;
+    }
+
+    /*
+     * In milliseconds since the epoch, or -1 if unknown
+     */
+    private static long getBootTime() {
+        long ret = bootTime;
+        if( ret < 0 ) {
+            try {
+                for( String line : Files.readAllLines(new File("/proc/stat").toPath(), StandardCharsets.UTF_8)) {
+                    if( line.startsWith(BTIME))
+                        ret = Long.parseLong(line.substring(BTIME.length()).trim()) * 1000;
+                }
+            } catch(IOException | NumberFormatException e) {
+                return -1;
+            }
+            bootTime = ret;
+        }
+        return ret;
+    }
+
+    private static String[] readStat(int pid) {
+        List<String> lines = readLines(pid, "stat");
+        if( lines == null || lines.isEmpty())
+            return null;
+        return parseStat(lines.get(0));
+    }
+
+    /*
+     * The fields after the command name, which is in parentheses and may contain spaces
+     */
+    static String[] parseStat(String line) {
+        int end = line.lastIndexOf(')');
+        if( end == -1 )
+            return null;
+        return line.substring(end + 1).trim().split("\\s+");
+    }
+
+    static long getStatusValue(List<String> status, String key) {
+        for( String line : status ) {
+            if( line.startsWith(key)) {
+                // VmRSS:    123456 kB
+                String value = line.substring(key.length()).trim();
+                int space = value.indexOf(' ');
+                try {
+                    return Long.parseLong(space == -1 ? value : value.substring(0, space));
+                } catch(NumberFormatException nfe) {
+                    return -1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static List<String> readLines(int pid, String file) {
+        if( pid <= 0 )
+            return null;
+        File f = new File("/proc/" + pid + "/" + file);
+        if( !f.isFile())
+            return null;
+        try {
+            return Files.readAllLines(f.toPath(), StandardCharsets.UTF_8);
+        } catch(IOException e) {
+            // The process exited
+            return null;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package com.redhat.devtools.intellij.rsp.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Waits for a freshly started RSP to accept connections.
+ * The RSP writes its port to a ready file once it has locked its workspace,
+ * which means it is about to listen. It is only ready once the ready file
+ * holds its port and a TCP connect to the port succeeds while the process
+ * is alive, so another program listening on the port is not mistaken for it.
+ * The port is probed quickly at first and then backing off, and quickly
+ * again from the moment the ready file appears. The wait ends early if
+ * the process exits.
+ */
+public class ReadinessProbe {
+    public enum Result {
+        READY,
+        EXITED,
+        TIMEOUT
+    }
+
+    private static final long MIN_DELAY = 20;
+    private static final long MAX_DELAY = 200;
+    private static final int CONNECT_TIMEOUT = 200;
+
+    public static boolean isAcceptingConnections(String host, int port) {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT);
+            return true;
+        } catch (IOException ioe) {
+            return false;
+        }
+    }
+
+    /**
+     * Wait for the process to listen on the given port.
+     *
+     * @param process the RSP process
+     * @param readyFile the file the RSP writes its port to, or null to rely on the connect alone
+     * @param timeout the maximum time to wait, in milliseconds
+     */
+    public static Result waitForReady(Process process, String host, int port, File readyFile, long timeout) {
+        long end = System.currentTimeMillis() + timeout;
+        long delay = MIN_DELAY;
+        boolean readySeen = readyFile == null;
+        while (System.currentTimeMillis() < end) {
+            if (!process.isAlive())
+                return Result.EXITED;
+            if (!readySeen)
+                readySeen = hasPort(readyFile, port);
+            if (readySeen && isAcceptingConnections(host, port) && process.isAlive())
+                return Result.READY;
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                return Result.TIMEOUT;
+            }
+            // Listening is imminent once the ready file is there, so no backing off
+            delay = readySeen && readyFile != null ? MIN_DELAY : Math.min(MAX_DELAY, delay * 2);
+        }
+        return Result.TIMEOUT;
+    }
+
+    private static boolean hasPort(File readyFile, int port) {
+        if (!readyFile.isFile())
+            return false;
+        try {
+            String content = new String(Files.readAllBytes(readyFile.toPath()), StandardCharsets.UTF_8).trim();
+            return content.equals(Integer.toString(port));
+        } catch (IOException ioe) {
+            return false;
+        }
+    }
+}
@@ -33,7 +33,12 @@ public class RemoteServerProcess extends PtyProcess {
     private PipedInputStream serverSysOut;
     private PipedInputStream serverSysErr;
     private RSPThread writer;
-    public RemoteServerProcess() {
+    private final String serverId;
+    // Only known on Linux, once the process was found among the RSP's children
+    private volatile int pid = 0;
+    private final long created = System.currentTimeMillis();
+    public RemoteServerProcess(String serverId) {
+        this.serverId = serverId;
         serverSysIn = new OutputStream() { @Override public void write(int b) { } };
         serverSysOut =new PipedInputStream();
         serverSysErr =new PipedInputStream();
@@ -64,7 +69,22 @@ public class RemoteServerProcess extends PtyProcess {
 
     @Override
     public int getPid() {
-        return 0;
+        return pid;
+    }
+
+    public String getServerId() {
+        return serverId;
+    }
+
+    /**
+     * When the RSP reported the process as created, in milliseconds since the epoch
+     */
+    public long getCreated() {
+        return created;
+    }
+
+    public void setPid(int pid) {
+        this.pid = pid;
     }
 
     private class RSPThread extends Thread {
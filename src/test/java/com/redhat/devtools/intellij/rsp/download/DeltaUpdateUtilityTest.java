@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package com.redhat.devtools.intellij.rsp.download;
+
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs delta updates against an archive held in memory, recording the range requests
+ */
+public class DeltaUpdateUtilityTest {
+    private static final String ROOT = "rsp";
+
+    @TempDir
+    File folder;
+
+    @Test
+    public void neighbouringChangesShareARequest() throws IOException {
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        for (int i = 0; i < 10; i++) {
+            // Files 5 and 6 put more than the allowed gap between the changes before and after them
+            int size = i == 5 || i == 6 ? 200 * 1024 : 20 * 1024;
+            files.put("lib/file" + i + ".bin", ZipFixture.content(size, i));
+        }
+        ZipFixture zip = new ZipFixture().directory(ROOT + "/").directory(ROOT + "/lib/");
+        for (Map.Entry<String, byte[]> e : files.entrySet()) {
+            zip.deflated(ROOT + "/" + e.getKey(), e.getValue());
+        }
+        byte[] archive = zip.toBytes();
+
+        File installed = new File(folder, "installed");
+        for (Map.Entry<String, byte[]> e : files.entrySet()) {
+            File f = new File(installed, e.getKey());
+            f.getParentFile().mkdirs();
+            Files.write(f.toPath(), e.getValue());
+        }
+        // Missing, same size with other content, and a lone change after the large files
+        Files.delete(new File(installed, "lib/file3.bin").toPath());
+        Files.write(new File(installed, "lib/file4.bin").toPath(), ZipFixture.content(20 * 1024, 100));
+        Files.write(new File(installed, "lib/file8.bin").toPath(), ZipFixture.content(10, 101));
+
+        RecordingDeltaUpdate delta = new RecordingDeltaUpdate(archive);
+        File destination = new File(folder, "new");
+        assertTrue(delta.update(installed, destination, new EmptyProgressIndicator()));
+        assertEquals(ROOT, delta.getRoot());
+        for (Map.Entry<String, byte[]> e : files.entrySet()) {
+            File f = new File(destination, ROOT + "/" + e.getKey());
+            assertArrayEquals(e.getValue(), Files.readAllBytes(f.toPath()), e.getKey());
+        }
+        // The tail holding the central directory, file3 and file4 together, then file8
+        assertEquals(3, delta.ranges.size(), delta.ranges.toString());
+        assertTrue(delta.ranges.get(0).startsWith("bytes=-"));
+    }
+
+    @Test
+    public void unchangedInstallNeedsNoDownload() throws IOException {
+        byte[] content = ZipFixture.content(5000, 1);
+        byte[] archive = new ZipFixture().stored(ROOT + "/a.txt", content).toBytes();
+        File installed = new File(folder, "installed");
+        installed.mkdirs();
+        Files.write(new File(installed, "a.txt").toPath(), content);
+
+        RecordingDeltaUpdate delta = new RecordingDeltaUpdate(archive);
+        File destination = new File(folder, "new");
+        assertTrue(delta.update(installed, destination, new EmptyProgressIndicator()));
+        assertArrayEquals(content, Files.readAllBytes(new File(destination, ROOT + "/a.txt").toPath()));
+        assertEquals(1, delta.ranges.size(), delta.ranges.toString());
+    }
+
+    @Test
+    public void noRangeSupport() throws IOException {
+        byte[] archive = new ZipFixture().deflated(ROOT + "/a.txt", ZipFixture.content(100, 1)).toBytes();
+        RecordingDeltaUpdate delta = new RecordingDeltaUpdate(archive);
+        delta.rangesSupported = false;
+        File destination = new File(folder, "new");
+        assertFalse(delta.update(new File(folder, "installed"), destination, new EmptyProgressIndicator()));
+        assertFalse(new File(destination, ROOT).exists());
+    }
+
+    private static class RecordingDeltaUpdate extends DeltaUpdateUtility {
+        private final byte[] archive;
+        private final List<String> ranges = new ArrayList<>();
+        private boolean rangesSupported = true;
+
+        RecordingDeltaUpdate(byte[] archive) {
+            super("http://localhost/rsp.zip");
+            this.archive = archive;
+        }
+
+        @Override
+        protected RemoteRange openRange(String range) {
+            ranges.add(range);
+            if (!rangesSupported) {
+                return null;
+            }
+            String spec = range.substring("bytes=".length());
+            int start;
+            int end;
+            if (spec.startsWith("-")) {
+                start = Math.max(0, archive.length - Integer.parseInt(spec.substring(1)));
+                end = archive.length - 1;
+            } else {
+                int dash = spec.indexOf('-');
+                start = Integer.parseInt(spec.substring(0, dash));
+                end = Math.min(archive.length - 1, Integer.parseInt(spec.substring(dash + 1)));
+            }
+            return new RemoteRange(start, new ByteArrayInputStream(archive, start, end - start + 1), () -> { });
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package com.redhat.devtools.intellij.rsp.download;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.util.Enumeration;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Every way of extracting must produce exactly what {@link ZipFile} reads from the archive
+ */
+public class UnzipUtilityTest {
+    @TempDir
+    File folder;
+
+    @Test
+    public void extractMatchesZipFile() throws IOException {
+        File archive = createArchive();
+        File destination = new File(folder, "serial");
+        UnzipUtility util = new UnzipUtility(archive);
+        util.extract(destination);
+        assertSameContent(archive, destination);
+        assertEquals("rsp", util.getRoot());
+    }
+
+    @Test
+    public void extractParallelMatchesZipFile() throws IOException {
+        File archive = createArchive();
+        File destination = new File(folder, "parallel");
+        UnzipUtility util = new UnzipUtility(archive);
+        util.extractParallel(destination);
+        assertSameContent(archive, destination);
+        assertEquals("rsp", util.getRoot());
+    }
+
+    @Test
+    public void extractStreamMatchesZipFile() throws IOException {
+        File archive = createArchive();
+        File destination = new File(folder, "stream");
+        UnzipUtility util = new UnzipUtility(archive);
+        try (InputStream in = Files.newInputStream(archive.toPath())) {
+            util.extract(in, destination);
+        }
+        assertSameContent(archive, destination);
+        assertEquals("rsp", util.getRoot());
+    }
+
+    @Test
+    public void extractParallelWithoutRoot() throws IOException {
+        File archive = new ZipFixture()
+                .stored("a.txt", ZipFixture.content(100, 1))
+                .deflated("b/c.txt", ZipFixture.content(100, 2))
+                .write(new File(folder, "noroot.zip"));
+        File destination = new File(folder, "noroot");
+        UnzipUtility util = new UnzipUtility(archive);
+        util.extractParallel(destination);
+        assertSameContent(archive, destination);
+        assertNull(util.getRoot());
+    }
+
+    @Test
+    public void interruptedParallelExtractFails() throws IOException {
+        File archive = createArchive();
+        UnzipUtility util = new UnzipUtility(archive);
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(InterruptedIOException.class, () -> util.extractParallel(new File(folder, "interrupted")));
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    public void notAZip() throws IOException {
+        File archive = new File(folder, "broken.zip");
+        Files.write(archive.toPath(), ZipFixture.content(1000, 3));
+        IOException e = assertThrows(IOException.class, () -> new UnzipUtility(archive).extract(new File(folder, "broken")));
+        assertTrue(e.getMessage().contains("may not be a properly formated zip file"));
+    }
+
+    /*
+     * Small entries of both methods, enough of them to fill several batches,
+     * and large entries that are extracted on their own. The STORED ones are
+     * copied with transferTo.
+     */
+    private File createArchive() throws IOException {
+        ZipFixture zip = new ZipFixture()
+                .directory("rsp/")
+                .directory("rsp/bin/")
+                .stored("rsp/bin/felix.jar", ZipFixture.content(2 * 1024 * 1024, 10))
+                .deflated("rsp/bin/big.bin", ZipFixture.content(3 * 1024 * 1024, 11))
+                .stored("rsp/empty.txt", new byte[0])
+                .directory("rsp/empty/");
+        for (int i = 0; i < 600; i++) {
+            String name = "rsp/lib/" + (i % 7) + "/file" + i + ".txt";
+            byte[] content = ZipFixture.content(100 + i * 13, i);
+            if (i % 3 == 0) {
+                zip.stored(name, content);
+            } else {
+                zip.deflated(name, content);
+            }
+        }
+        return zip.write(new File(folder, "archive.zip"));
+    }
+
+    private static void assertSameContent(File archive, File destination) throws IOException {
+        try (ZipFile zipFile = new ZipFile(archive)) {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                File extracted = new File(destination, entry.getName());
+                if (entry.isDirectory()) {
+                    assertTrue(extracted.isDirectory(), entry.getName());
+                    continue;
+                }
+                assertTrue(extracted.isFile(), entry.getName());
+                try (InputStream in = zipFile.getInputStream(entry)) {
+                    assertArrayEquals(readAll(in), Files.readAllBytes(extracted.toPath()), entry.getName());
+                }
+            }
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[16 * 1024];
+        int len;
+        while ((len = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, len);
+        }
+        return out.toByteArray();
+    }
+}
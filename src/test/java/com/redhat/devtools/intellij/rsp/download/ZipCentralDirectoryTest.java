@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package com.redhat.devtools.intellij.rsp.download;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Enumeration;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ZipCentralDirectoryTest {
+    @TempDir
+    File folder;
+
+    @Test
+    public void entriesMatchZipFile() throws IOException {
+        File archive = new ZipFixture()
+                .directory("rsp/")
+                .stored("rsp/stored.txt", ZipFixture.content(5000, 1))
+                .deflated("rsp/deflated.txt", ZipFixture.content(7000, 2))
+                .stored("rsp/empty.txt", new byte[0])
+                .comment("a comment the end of central directory search has to skip")
+                .write(new File(folder, "archive.zip"));
+        try (FileChannel channel = FileChannel.open(archive.toPath(), StandardOpenOption.READ);
+             ZipFile zipFile = new ZipFile(archive)) {
+            ZipCentralDirectory directory = ZipCentralDirectory.read(channel);
+            assertEquals(zipFile.size(), directory.getEntries().size());
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry expected = entries.nextElement();
+                ZipCentralDirectory.Entry entry = directory.getEntry(expected.getName());
+                assertNotNull(entry, expected.getName());
+                assertEquals(expected.getMethod(), entry.getMethod(), expected.getName());
+                assertEquals(expected.getCrc(), entry.getCrc(), expected.getName());
+                assertEquals(expected.getSize(), entry.getSize(), expected.getName());
+                assertEquals(expected.getCompressedSize(), entry.getCompressedSize(), expected.getName());
+                assertEquals(expected.isDirectory(), entry.isDirectory(), expected.getName());
+            }
+            assertNull(directory.getEntry("missing"));
+        }
+    }
+
+    @Test
+    public void dataOffsetPointsAtStoredContent() throws IOException {
+        byte[] content = ZipFixture.content(3000, 3);
+        File archive = new ZipFixture()
+                .deflated("first.txt", ZipFixture.content(1000, 4))
+                .stored("second.txt", content)
+                .write(new File(folder, "archive.zip"));
+        try (FileChannel channel = FileChannel.open(archive.toPath(), StandardOpenOption.READ)) {
+            ZipCentralDirectory.Entry entry = ZipCentralDirectory.read(channel).getEntry("second.txt");
+            assertTrue(entry.isStored());
+            ByteBuffer data = ByteBuffer.allocate(content.length);
+            channel.read(data, ZipCentralDirectory.getDataOffset(channel, entry));
+            assertArrayEquals(content, data.array());
+        }
+    }
+
+    @Test
+    public void locateInTail() throws IOException {
+        byte[] bytes = new ZipFixture()
+                .deflated("a.txt", ZipFixture.content(100000, 5))
+                .deflated("b.txt", ZipFixture.content(100000, 6))
+                .toBytes();
+        // Only the last bytes, as a range request for the tail returns them
+        int tailLength = Math.min(bytes.length, ZipCentralDirectory.MAX_EOCD_SEARCH);
+        ByteBuffer tail = ByteBuffer.wrap(bytes, bytes.length - tailLength, tailLength).slice();
+        long[] location = ZipCentralDirectory.locate(tail);
+        ByteBuffer cd = ByteBuffer.wrap(bytes, (int) location[0], (int) location[1]).slice();
+        ZipCentralDirectory directory = ZipCentralDirectory.parse(location[0], cd);
+        assertEquals(location[0], directory.getOffset());
+        assertEquals(location[1], directory.getLength());
+        assertEquals(2, directory.getEntries().size());
+        assertEquals("a.txt", directory.getEntries().get(0).getName());
+        assertEquals("b.txt", directory.getEntries().get(1).getName());
+    }
+
+    @Test
+    public void notAZip() {
+        ByteBuffer garbage = ByteBuffer.wrap(ZipFixture.content(1000, 7));
+        assertThrows(IOException.class, () -> ZipCentralDirectory.locate(garbage));
+        assertThrows(IOException.class, () -> ZipCentralDirectory.getDataStart(garbage));
+    }
+}
@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package com.redhat.devtools.intellij.rsp.download;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Builds zip archives for the tests, with a chosen compression method per entry
+ */
+class ZipFixture {
+    private final Map<String, byte[]> entries = new LinkedHashMap<>();
+    private final Map<String, Boolean> stored = new LinkedHashMap<>();
+    private String comment;
+
+    ZipFixture directory(String name) {
+        entries.put(name, null);
+        return this;
+    }
+
+    ZipFixture deflated(String name, byte[] content) {
+        entries.put(name, content);
+        stored.put(name, false);
+        return this;
+    }
+
+    ZipFixture stored(String name, byte[] content) {
+        entries.put(name, content);
+        stored.put(name, true);
+        return this;
+    }
+
+    ZipFixture comment(String comment) {
+        this.comment = comment;
+        return this;
+    }
+
+    byte[] toBytes() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        write(bytes);
+        return bytes.toByteArray();
+    }
+
+    File write(File file) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file.toPath())) {
+            write(out);
+        }
+        return file;
+    }
+
+    private void write(OutputStream out) throws IOException {
+        try (ZipOutputStream zos = new ZipOutputStream(out)) {
+            if (comment != null) {
+                zos.setComment(comment);
+            }
+            for (Map.Entry<String, byte[]> e : entries.entrySet()) {
+                ZipEntry entry = new ZipEntry(e.getKey());
+                byte[] content = e.getValue();
+                if (content == null) {
+                    zos.putNextEntry(entry);
+                    zos.closeEntry();
+                    continue;
+                }
+                if (stored.get(e.getKey())) {
+                    // STORED entries need their sizes and checksum up front
+                    CRC32 crc = new CRC32();
+                    crc.update(content);
+                    entry.setMethod(ZipEntry.STORED);
+                    entry.setSize(content.length);
+                    entry.setCompressedSize(content.length);
+                    entry.setCrc(crc.getValue());
+                }
+                zos.putNextEntry(entry);
+                zos.write(content);
+                zos.closeEntry();
+            }
+        }
+    }
+
+    /**
+     * Half random, half repeated bytes, so deflating shrinks it without making it trivial
+     */
+    static byte[] content(int size, long seed) {
+        byte[] ret = new byte[size];
+        Random random = new Random(seed);
+        for (int i = 0; i < size; i++) {
+            ret[i] = i % 2 == 0 ? (byte) random.nextInt() : (byte) (i / 64);
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package com.redhat.devtools.intellij.rsp.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LatencyHistogramTest {
+    @Test
+    public void empty() {
+        LatencyHistogram h = new LatencyHistogram();
+        assertEquals(0, h.getCount());
+        assertEquals(-1, h.getLast());
+        assertEquals(-1, h.getLastBucket());
+        assertEquals(-1, h.getPercentile(0.95));
+        assertEquals("no ping yet", h.toString());
+    }
+
+    @Test
+    public void percentilesAreBucketBounds() {
+        LatencyHistogram h = new LatencyHistogram();
+        // 95 fast pings and 5 slow ones
+        for (int i = 0; i < 95; i++) {
+            h.record(3);
+        }
+        for (int i = 0; i < 5; i++) {
+            h.record(700);
+        }
+        assertEquals(100, h.getCount());
+        assertEquals(5, h.getPercentile(0.5));
+        assertEquals(5, h.getPercentile(0.95));
+        assertEquals(1000, h.getPercentile(0.96));
+        assertEquals(1000, h.getPercentile(1));
+    }
+
+    @Test
+    public void boundsAreInclusive() {
+        LatencyHistogram h = new LatencyHistogram();
+        h.record(0);
+        assertEquals(1, h.getLastBucket());
+        h.record(10);
+        assertEquals(10, h.getLastBucket());
+        h.record(11);
+        assertEquals(25, h.getLastBucket());
+        h.record(10001);
+        assertEquals(Long.MAX_VALUE, h.getLastBucket());
+        assertEquals(10001, h.getLast());
+    }
+
+    @Test
+    public void labelOnlyChangesWithBuckets() {
+        LatencyHistogram h = new LatencyHistogram();
+        h.record(30);
+        String label = h.toString();
+        assertEquals("ping <= 50 ms, p95 <= 50 ms", label);
+        h.record(45);
+        assertEquals(label, h.toString());
+        h.record(20000);
+        assertEquals("ping > 10000 ms, p95 > 10000 ms", h.toString());
+    }
+
+    @Test
+    public void respondingAgainAfterAnAnswer() {
+        LatencyHistogram h = new LatencyHistogram();
+        h.record(4);
+        h.setResponding(false);
+        assertFalse(h.isResponding());
+        assertEquals("not responding", h.toString());
+        h.record(4);
+        assertTrue(h.isResponding());
+        assertEquals("ping <= 5 ms, p95 <= 5 ms", h.toString());
+    }
+}
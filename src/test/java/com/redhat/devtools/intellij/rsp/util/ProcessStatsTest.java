@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package com.redhat.devtools.intellij.rsp.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class ProcessStatsTest {
+    @Test
+    public void parseStatWithSpacesInCommand() {
+        // pid (comm) state ppid pgrp session tty_nr tpgid flags minflt cminflt majflt cmajflt utime stime ...
+        String line = "4242 (java (RSP) x) S 1 4242 4242 0 -1 4194560 5000 0 12 0 150 25 0 0 20 0 31 0 98765 "
+                + "4000000000 60000 18446744073709551615";
+        String[] fields = ProcessStats.parseStat(line);
+        assertNotNull(fields);
+        assertEquals("S", fields[0]);
+        assertEquals("1", fields[1]);
+        assertEquals("150", fields[11]);
+        assertEquals("25", fields[12]);
+        assertEquals("98765", fields[19]);
+    }
+
+    @Test
+    public void parseStatWithoutCommand() {
+        assertNull(ProcessStats.parseStat("garbage"));
+    }
+
+    @Test
+    public void statusValues() {
+        List<String> status = Arrays.asList(
+                "Name:\tjava",
+                "VmRSS:\t  123456 kB",
+                "Threads:\t31",
+                "VmSwap:\tbroken kB");
+        assertEquals(123456, ProcessStats.getStatusValue(status, "VmRSS:"));
+        assertEquals(31, ProcessStats.getStatusValue(status, "Threads:"));
+        assertEquals(-1, ProcessStats.getStatusValue(status, "VmSwap:"));
+        assertEquals(-1, ProcessStats.getStatusValue(status, "VmHWM:"));
+    }
+
+    @Test
+    public void processTreeIncludesAllDescendants() {
+        Map<Integer, List<Integer>> children = new HashMap<>();
+        children.put(1, Arrays.asList(2, 3));
+        children.put(3, Collections.singletonList(4));
+        children.put(4, Collections.singletonList(5));
+        children.put(9, Collections.singletonList(10));
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5), ProcessStats.getProcessTree(1, children));
+        assertEquals(Arrays.asList(3, 4, 5), ProcessStats.getProcessTree(3, children));
+        assertEquals(Collections.singletonList(2), ProcessStats.getProcessTree(2, children));
+    }
+
+    @Test
+    public void sampleOwnProcess() {
+        assumeTrue(ProcessStats.isSupported(), "Needs /proc");
+        String name = ManagementFactory.getRuntimeMXBean().getName();
+        int pid = Integer.parseInt(name.substring(0, name.indexOf('@')));
+        ProcessStats.Sample sample = ProcessStats.sample(pid);
+        assertNotNull(sample);
+        assertTrue(sample.getRssKb() > 0);
+        assertTrue(sample.getThreads() > 0);
+        long started = ProcessStats.getStartTime(pid);
+        assertTrue(started > 0 && started <= System.currentTimeMillis() + 1000);
+        assertTrue(ProcessStats.getProcessTree(pid, ProcessStats.getDescendants(pid)).contains(pid));
+    }
+}